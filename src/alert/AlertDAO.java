@@ -9,8 +9,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 import database.DBManager;
+import database.StatementShapes;
+import database.TransactionContext;
 
 public class AlertDAO {
+    // Rows per multi-row INSERT in createAlerts()
+    private static final int BATCH_SIZE = 500;
+    // Maximum age of the open-alert index before it is reloaded (other terminals' alerts)
+    private static final long INDEX_REFRESH_MS = Long.getLong("nardo.alert.indexRefreshMs", 60 * 1000L);
+
     public AlertDAO() {}
 
     public boolean createAlert(LowStockAlert alert) throws SQLException {
@@ -31,19 +38,93 @@ public class AlertDAO {
                         alert.setAlertId(generatedKeys.getInt(1));
                     }
                 }
+                int alertId = alert.getAlertId();
+                int productId = alert.getProductId();
+                TransactionContext.afterCommit(() -> OpenAlertIndex.getInstance().opened(alertId, productId));
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Inserts several alerts with multi-row INSERT statements (up to
+     * BATCH_SIZE rows each, in StatementShapes sizes) in one transaction, instead of one round trip
+     * and generated-key fetch per alert. Joins the caller's
+     * TransactionContext if one is active.
+     *
+     * @param alerts Alerts to insert; each one's alertId is set
+     * @return The generated alert IDs, in the same order as the input
+     */
+    public int[] createAlerts(List<LowStockAlert> alerts) throws SQLException {
+        int[] ids = new int[alerts.size()];
+        if (alerts.isEmpty()) {
+            return ids;
+        }
+
+        TransactionContext ownTransaction = TransactionContext.isActive() ? null : TransactionContext.begin();
+        try (Connection c = DBManager.getConnection()) {
+            for (int from = 0; from < alerts.size(); ) {
+                int size = StatementShapes.chunkSize(alerts.size() - from, BATCH_SIZE);
+                insertChunk(c, alerts.subList(from, from + size), ids, from);
+                from += size;
+            }
+            if (ownTransaction != null) {
+                ownTransaction.commit();
+            }
+        } finally {
+            if (ownTransaction != null) {
+                ownTransaction.close();
+            }
+        }
+        return ids;
+    }
+
+    private void insertChunk(Connection c, List<LowStockAlert> chunk, int[] ids, int offset) throws SQLException {
+        String query = "INSERT INTO low_stock_alerts " +
+                "(product_id, current_quantity, min_stock_level, alert_date, is_resolved) VALUES " +
+                StatementShapes.repeat("(?, ?, ?, ?, ?)", chunk.size());
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement stmt = c.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (LowStockAlert alert : chunk) {
+                stmt.setInt(index++, alert.getProductId());
+                stmt.setInt(index++, alert.getCurrentQuantity());
+                stmt.setInt(index++, alert.getMinStockLevel());
+                stmt.setTimestamp(index++, now);
+                stmt.setBoolean(index++, false);
+            }
+            stmt.executeUpdate();
+
+            // MySQL hands out consecutive keys for one multi-row INSERT, in row order
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Failed to create alerts, no ID obtained for row " + (offset + i));
+                    }
+                    LowStockAlert alert = chunk.get(i);
+                    int alertId = generatedKeys.getInt(1);
+                    int productId = alert.getProductId();
+                    alert.setAlertId(alertId);
+                    ids[offset + i] = alertId;
+                    TransactionContext.afterCommit(() -> OpenAlertIndex.getInstance().opened(alertId, productId));
+                }
+            }
+        }
+    }
+
     public boolean resolveAlert(int alertId) throws SQLException {
         String query = "UPDATE low_stock_alerts SET is_resolved = TRUE, resolved_at = ? WHERE alert_id = ?";
         try (Connection c = DBManager.getConnection();
              PreparedStatement stmt = c.prepareStatement(query)) {
             stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
             stmt.setInt(2, alertId);
-            return stmt.executeUpdate() > 0;
+            boolean resolved = stmt.executeUpdate() > 0;
+            if (resolved) {
+                TransactionContext.afterCommit(() -> OpenAlertIndex.getInstance().resolved(alertId));
+            }
+            return resolved;
         }
     }
 
@@ -75,32 +156,66 @@ public class AlertDAO {
         return alerts;
     }
 
+    // Answered from the in-memory open-alert index (no query)
     public boolean hasUnresolvedAlert(int productId) throws SQLException {
-        String query = "SELECT COUNT(*) FROM low_stock_alerts WHERE product_id = ? AND is_resolved = FALSE";
+        return openAlerts().hasOpenAlert(productId);
+    }
+
+    // Answered from the in-memory open-alert index (no query)
+    public int getActiveAlertCount() throws SQLException {
+        return openAlerts().getOpenAlertCount();
+    }
+
+    /**
+     * Reloads the open-alert index from the database, picking up alerts
+     * created or resolved by other terminals.
+     */
+    public void refreshOpenAlerts() throws SQLException {
+        try (Connection c = DBManager.getConnection()) {
+            OpenAlertIndex.getInstance().reload(c);
+        }
+    }
+
+    /**
+     * Looks up an open alert for the product in the database rather than
+     * the index, so an alert another terminal raised since the last reload
+     * is found. A hit is added to the index.
+     *
+     * @return ID of an open alert for the product, or 0 if there is none
+     */
+    public int findOpenAlert(int productId) throws SQLException {
+        String query = "SELECT alert_id FROM low_stock_alerts WHERE product_id = ? AND is_resolved = FALSE LIMIT 1";
         try (Connection c = DBManager.getConnection();
              PreparedStatement stmt = c.prepareStatement(query)) {
             stmt.setInt(1, productId);
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
+                if (!rs.next()) {
+                    return 0;
                 }
+                int alertId = rs.getInt(1);
+                OpenAlertIndex.getInstance().opened(alertId, productId);
+                return alertId;
             }
         }
-        return false;
     }
 
-    public int getActiveAlertCount() throws SQLException {
-        String query = "SELECT COUNT(*) FROM low_stock_alerts WHERE is_resolved = FALSE";
-        try (Connection c = DBManager.getConnection();
-             Statement stmt = c.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            if (rs.next()) {
-                return rs.getInt(1);
+    private OpenAlertIndex openAlerts() throws SQLException {
+        OpenAlertIndex index = OpenAlertIndex.getInstance();
+        if (!index.isLoadedWithin(INDEX_REFRESH_MS)) {
+            try {
+                refreshOpenAlerts();
+            } catch (SQLException e) {
+                if (!index.isLoaded()) {
+                    throw e;
+                }
+                // Keep answering from the previous contents until the database is back
+                System.err.println("Error refreshing open alerts: " + e.getMessage());
             }
         }
-        return 0;
+        return index;
     }
 
+    // Only resolved alerts are removed, so the open-alert index is unaffected
     public void deleteResolvedAlerts() throws SQLException {
         String query = "DELETE FROM low_stock_alerts WHERE is_resolved = TRUE";
         try (Connection c = DBManager.getConnection();
@@ -2,15 +2,32 @@
 package alert;
 
 import product.Product;
+import product.ProductCatalogCache;
 import product.ProductDAO;
+import product.StockThresholdMonitor;
 import stock.LowStockAlert;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
 
+/**
+ * Low stock alert lifecycle - SRS 1.2 Low Stock Alerts
+ *
+ * Alerts are raised from StockThresholdMonitor events, i.e. at the moment a
+ * sale, restock or adjustment takes a product to its minimum stock level.
+ * checkStockLevels() remains as a full-catalog reconciliation pass that
+ * catches anything the events missed (changes made by other terminals or
+ * directly in MySQL); startMonitoring() runs it once at startup and then
+ * every nardo.alert.reconcileMs (default 6 hours).
+ */
 public class AlertManager {
+    private static final long RECONCILE_INTERVAL_MS = Long.getLong("nardo.alert.reconcileMs", 6 * 60 * 60 * 1000L);
+    private static Timer reconcileTimer;
+
     private final ProductDAO productDAO;
     private final AlertDAO alertDAO;
 
@@ -19,16 +36,81 @@ public class AlertManager {
         this.alertDAO = new AlertDAO();
     }
 
+    /**
+     * Subscribes to low-stock events and schedules the reconciliation pass.
+     * Safe to call more than once; only the first call has an effect.
+     */
+    public static synchronized void startMonitoring() {
+        if (reconcileTimer != null) {
+            return;
+        }
+        AlertManager manager = new AlertManager();
+        StockThresholdMonitor.getInstance().addListener(manager::onLowStock);
+
+        reconcileTimer = new Timer("alert-reconciler", true);
+        reconcileTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    manager.checkStockLevels();
+                } catch (RuntimeException e) {
+                    // Keep the timer alive (e.g. database temporarily unreachable)
+                    System.err.println("Error reconciling stock alerts: " + e.getMessage());
+                }
+            }
+        }, 0, RECONCILE_INTERVAL_MS);
+    }
+
+    private void onLowStock(StockThresholdMonitor.LowStockEvent event) {
+        if (hasUnresolvedAlert(event.getProductId())) {
+            return; // Already alerted
+        }
+        try {
+            // The index may not have seen another terminal's alert yet; events are rare, so ask MySQL
+            if (alertDAO.findOpenAlert(event.getProductId()) != 0) {
+                return;
+            }
+            LowStockAlert alert = new LowStockAlert(
+                    0,
+                    event.getProductId(),
+                    event.getQuantity(),
+                    event.getMinStock(),
+                    event.getDetectedAt(),
+                    false
+            );
+            alertDAO.createAlert(alert);
+            System.out.println("ALERT: Low stock for product ID " + event.getProductId() +
+                    " (Current: " + event.getQuantity() +
+                    ", Min: " + event.getMinStock() + ")");
+        } catch (SQLException e) {
+            System.err.println("Error triggering low stock alert: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reconciliation pass: raises an alert for every low product that has
+     * none open. Alerts are normally raised from stock change events, so
+     * this only needs to run occasionally.
+     */
     public void checkStockLevels() {
         try {
-            List<Product> products = productDAO.getAllProducts();
+            alertDAO.refreshOpenAlerts();
+            List<Product> products = ProductCatalogCache.getInstance().getAllActiveProducts();
+            List<LowStockAlert> pending = new ArrayList<>();
             for (Product product : products) {
                 if (product.isActive() && product.getQuantity() <= product.getMinStock()) {
                     if (!hasUnresolvedAlert(product.getProductId())) {
-                        triggerLowStockAlert(product);
+                        pending.add(new LowStockAlert(0, product.getProductId(), product.getQuantity(),
+                                product.getMinStock(), LocalDateTime.now(), false));
                     }
                 }
             }
+
+            // One batched insert for everything the pass found
+            if (!pending.isEmpty()) {
+                alertDAO.createAlerts(pending);
+                System.out.println("ALERT: Reconciliation raised " + pending.size() + " low stock alert(s)");
+            }
         } catch (SQLException e) {
             System.err.println("Error checking stock levels: " + e.getMessage());
         }
@@ -0,0 +1,100 @@
+package alert;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory set of products with unresolved alerts - SRS 3.1 Performance
+ *
+ * Loaded from low_stock_alerts once, then kept current by AlertDAO's
+ * createAlert / resolveAlert, so hasUnresolvedAlert() and
+ * getActiveAlertCount() (polled by the dashboard timer) are memory reads
+ * instead of COUNT(*) queries.
+ *
+ * - A BitSet indexed by product ID marks products with at least one open alert
+ * - A per-product count handles products with more than one open alert
+ * - alertId -> productId lets resolveAlert(alertId) clear the right bit
+ *
+ * Alerts written by other terminals are picked up by reload(). AlertDAO
+ * reloads the index once it is older than nardo.alert.indexRefreshMs
+ * (default 1 minute), and the AlertManager reconciliation pass reloads it
+ * before scanning.
+ */
+class OpenAlertIndex {
+    private static OpenAlertIndex instance;
+
+    private final BitSet productsWithOpenAlerts = new BitSet();
+    private final Map<Integer, Integer> openCountByProduct = new HashMap<>();
+    private final Map<Integer, Integer> productByOpenAlert = new HashMap<>();
+    private long loadedAt = 0; // 0 = never loaded
+
+    private OpenAlertIndex() {}
+
+    static synchronized OpenAlertIndex getInstance() {
+        if (instance == null) {
+            instance = new OpenAlertIndex();
+        }
+        return instance;
+    }
+
+    synchronized boolean isLoaded() {
+        return loadedAt != 0;
+    }
+
+    /**
+     * @return True if the index was loaded less than maxAgeMillis ago
+     */
+    synchronized boolean isLoadedWithin(long maxAgeMillis) {
+        return loadedAt != 0 && System.currentTimeMillis() - loadedAt < maxAgeMillis;
+    }
+
+    /**
+     * Replaces the contents with the open alerts currently in the database.
+     */
+    synchronized void reload(Connection c) throws SQLException {
+        productsWithOpenAlerts.clear();
+        openCountByProduct.clear();
+        productByOpenAlert.clear();
+        String query = "SELECT alert_id, product_id FROM low_stock_alerts WHERE is_resolved = FALSE";
+        try (Statement stmt = c.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                opened(rs.getInt("alert_id"), rs.getInt("product_id"));
+            }
+        }
+        loadedAt = System.currentTimeMillis();
+    }
+
+    synchronized boolean hasOpenAlert(int productId) {
+        return productId >= 0 && productsWithOpenAlerts.get(productId);
+    }
+
+    synchronized int getOpenAlertCount() {
+        return productByOpenAlert.size();
+    }
+
+    synchronized void opened(int alertId, int productId) {
+        if (productByOpenAlert.put(alertId, productId) != null) {
+            return; // Already indexed
+        }
+        openCountByProduct.merge(productId, 1, Integer::sum);
+        productsWithOpenAlerts.set(productId);
+    }
+
+    synchronized void resolved(int alertId) {
+        Integer productId = productByOpenAlert.remove(alertId);
+        if (productId == null) {
+            return;
+        }
+        int remaining = openCountByProduct.merge(productId, -1, Integer::sum);
+        if (remaining <= 0) {
+            openCountByProduct.remove(productId);
+            productsWithOpenAlerts.clear(productId);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package database;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC Connection Pool - SRS Component: 2.3.2 Database Layer
+ *
+ * Keeps a set of physical MySQL connections open and lends them out through
+ * the standard DataSource API. Connections handed out by getConnection() are
+ * proxies: calling close() returns the physical connection to the pool
+ * instead of tearing down the socket, so the usual DAO idiom
+ *
+ *   try (Connection c = DBManager.getConnection()) { ... }
+ *
+ * costs one pool borrow rather than one TCP + authentication handshake.
+ *
+ * Behaviour:
+ * - At most maxSize connections exist at once; borrowers wait up to
+ *   borrowTimeoutMillis for one to be returned
+ * - minSize connections are opened up front and never evicted
+ * - Connections idle longer than idleTimeoutMillis are closed by a
+ *   background evictor (down to minSize)
+ * - A connection that sat idle longer than validationIntervalMillis is
+ *   checked with isValid() before being handed out; dead ones are discarded
+ * - Returned connections are rolled back if left mid-transaction and put
+ *   back into auto-commit mode
+ * - Each physical connection keeps an LRU cache of up to
+ *   statementCacheSize PreparedStatements (see StatementCache), so
+ *   prepareStatement(sql) on a hot SQL string is a cache hit
+ *
+ * Thread Safety: Safe for concurrent borrow/return from any thread.
+ */
+public class ConnectionPool implements DataSource {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+
+    // Most recently returned connection sits at the head (LIFO keeps hot connections hot)
+    private final LinkedBlockingDeque<PooledEntry> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder statementCacheEvictions = new LongAdder();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed = false;
+    private int loginTimeout = 0;
+
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis,
+                          long validationIntervalMillis, int statementCacheSize) throws SQLException {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Pre-open the minimum number of connections
+        for (int i = 0; i < minSize; i++) {
+            idleConnections.offerLast(newEntry());
+        }
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new physical connection
+     * if none are idle and the pool is below maxSize.
+     *
+     * @return Pooled connection; close() returns it to the pool
+     * @throws SQLException If the pool is closed, exhausted past the borrow timeout,
+     *                      or a new connection cannot be opened
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis +
+                        "ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledEntry entry;
+            while ((entry = idleConnections.pollFirst()) != null) {
+                if (validate(entry)) {
+                    return entry.lend();
+                }
+                discard(entry);
+            }
+            return newEntry().lend();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials");
+    }
+
+    /**
+     * Closes every idle connection and stops the evictor. Connections still
+     * on loan are closed as they are returned.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idleConnections.pollFirst()) != null) {
+            discard(entry);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getOpenCount() {
+        return openConnections.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions.sum();
+    }
+
+    private PooledEntry newEntry() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        openConnections.incrementAndGet();
+        return new PooledEntry(raw);
+    }
+
+    private boolean validate(PooledEntry entry) {
+        try {
+            if (entry.raw.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - entry.lastReturned < validationIntervalMillis) {
+                return true;
+            }
+            return entry.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        try {
+            boolean reusable = !closed && !entry.raw.isClosed();
+            if (reusable) {
+                try {
+                    if (!entry.raw.getAutoCommit()) {
+                        entry.raw.rollback();
+                        entry.raw.setAutoCommit(true);
+                    }
+                    entry.raw.clearWarnings();
+                    entry.statementCache.resetAll();
+                } catch (SQLException e) {
+                    reusable = false;
+                }
+            }
+
+            if (reusable) {
+                entry.lastReturned = System.currentTimeMillis();
+                idleConnections.offerFirst(entry);
+            } else {
+                discard(entry);
+            }
+        } catch (SQLException e) {
+            discard(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        // Oldest idle connections are at the tail
+        Iterator<PooledEntry> it = idleConnections.descendingIterator();
+        while (it.hasNext() && idleConnections.size() > minSize) {
+            PooledEntry entry = it.next();
+            if (now - entry.lastReturned >= idleTimeoutMillis && idleConnections.remove(entry)) {
+                discard(entry);
+            }
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        entry.statementCache.closeAll();
+        try {
+            entry.raw.close();
+        } catch (SQLException e) {
+            // Connection is already unusable
+        }
+        openConnections.decrementAndGet();
+    }
+
+    // DataSource boilerplate
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    // Only prepareStatement(String) and prepareStatement(String, int autoGeneratedKeys) are cached
+    private static boolean isCacheable(Method method) {
+        Class<?>[] params = method.getParameterTypes();
+        return params.length == 1
+                || (params.length == 2 && params[1] == int.class);
+    }
+
+    /**
+     * One physical connection owned by the pool.
+     */
+    private class PooledEntry {
+        final Connection raw;
+        final StatementCache statementCache;
+        volatile long lastReturned = System.currentTimeMillis();
+
+        PooledEntry(Connection raw) {
+            this.raw = raw;
+            this.statementCache = new StatementCache(raw, statementCacheSize,
+                    statementCacheHits, statementCacheMisses, statementCacheEvictions);
+        }
+
+        Connection lend() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Handle given to a single borrower. close() hands the physical
+     * connection back to the pool; every other call is forwarded.
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean returned = false;
+
+        LeaseHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.raw + "]";
+                case "prepareStatement":
+                    if (!returned && isCacheable(method)) {
+                        int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return entry.statementCache.prepare((String) args[0], keys);
+                    }
+                    break;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(entry.raw)) {
+                        return entry.raw;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(entry.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
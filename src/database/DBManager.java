@@ -1,21 +1,23 @@
-
 package database;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Database Connection Manager - SRS Component: 2.3.2 Database Layer
  * 
  * Manages JDBC connection lifecycle for the inventory system.
- * Implements singleton pattern to maintain a single database connection
- * throughout the application lifetime.
+ * Owns a single application-wide ConnectionPool and lends pooled
+ * connections to the DAOs.
  * 
  * Responsibilities:
- * - Establish MySQL database connection
+ * - Establish MySQL database connectivity (credentials are resolved once)
+ * - Lend pooled connections; closing one returns it to the pool
  * - Verify connection validity
- * - Gracefully close connection on application exit
+ * - Gracefully close the pool on application exit
  * - Handle connection failures with meaningful error messages
  * 
  * Configuration:
@@ -23,14 +25,21 @@ import java.sql.SQLException;
  * - Host: localhost:3306
  * - Credentials: Configured in DATABASE constants
  * - Driver: MySQL Connector/J (com.mysql.cj.jdbc.Driver)
+ * - Pool sizing: system properties nardo.db.pool.min / nardo.db.pool.max,
+ *   nardo.db.pool.idleTimeoutMs, nardo.db.pool.borrowTimeoutMs,
+ *   nardo.db.statementCacheSize (PreparedStatements cached per connection)
  * 
  * Usage:
- *   Connection conn = DBManager.getConnection();
- *   // Perform database operations
- *   DBManager.closeConnection();
+ *   try (Connection conn = DBManager.getConnection()) {
+ *       // Perform database operations
+ *   } // connection goes back to the pool
+ *   DBManager.closeConnection(); // on application exit
+ * 
+ * Inside a TransactionContext every getConnection() call on that thread
+ * returns the transaction's connection.
  * 
- * Thread Safety: Connection is managed statically (not thread-safe for concurrent use)
- * For multi-threaded applications, consider using connection pooling.
+ * Thread Safety: Pooled connections may be borrowed from any thread,
+ * but a single borrowed connection must not be shared between threads.
  */
 public class DBManager {
     private static final String DATABASE_URL = "jdbc:mysql://localhost:3306/nardos_inventory";
@@ -39,82 +48,168 @@ public class DBManager {
     private static final String[] DATABASE_PASSWORDS = {"", "password", "root", "admin", "123456", "thisSQLP@ssword"};
     private static final String JDBC_DRIVER = "com.mysql.jdbc.Driver"; 
     
-    private static Connection connection = null;
-    private static boolean connectionAttempted = false;
+    // Pool settings
+    private static final int POOL_MIN_SIZE = Integer.getInteger("nardo.db.pool.min", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("nardo.db.pool.max", 10);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("nardo.db.pool.idleTimeoutMs", 5 * 60 * 1000L);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("nardo.db.pool.borrowTimeoutMs", 10 * 1000L);
+    private static final long POOL_VALIDATION_INTERVAL_MS = 30 * 1000L;
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("nardo.db.statementCacheSize", 64);
+    
+    private static final int PROBE_TIMEOUT_SECONDS = 5;
+    
+    private static volatile ConnectionPool pool = null;
+    // Set once no password works (or the driver is missing); the run stays in test mode
+    private static volatile boolean testMode = false;
+    
+    // Run by closeConnection() before the pool closes (e.g. flush write-behind queues)
+    private static final List<Runnable> shutdownHooks = new ArrayList<>();
     
     /**
-     * Retrieves the active database connection, creating one if necessary.
-     * Attempts multiple password combinations for flexibility.
+     * Borrows a connection from the pool, creating the pool if necessary.
+     * Attempts multiple password combinations for flexibility (once per pool).
      * Returns null if connection fails (test mode).
      * 
-     * @return Active database connection or null if in test mode
-     * @throws SQLException If connection cannot be established
+     * If a TransactionContext is active on the calling thread, its connection
+     * is returned instead so the caller joins that transaction.
+     * 
+     * @return Pooled database connection or null if in test mode
+     * @throws SQLException If the pool cannot lend a connection
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                Class.forName(JDBC_DRIVER);
-                
-                // Try each password
-                SQLException lastException = null;
-                for (String password : DATABASE_PASSWORDS) {
-                    try {
-                        connection = DriverManager.getConnection(DATABASE_URL, DATABASE_USER, password);
-                        System.out.println("✓ Database connection established successfully");
-                        System.out.println("  URL: " + DATABASE_URL);
-                        System.out.println("  User: " + DATABASE_USER);
-                        connectionAttempted = true;
-                        return connection;
-                    } catch (SQLException e) {
-                        lastException = e;
-                        // Continue to next password
+        Connection transactional = TransactionContext.currentConnection();
+        if (transactional != null) {
+            return transactional;
+        }
+        
+        ConnectionPool dataSource = pool;
+        if (dataSource == null || dataSource.isClosed()) {
+            dataSource = getDataSource();
+        }
+        if (dataSource == null) {
+            return null; // Test mode
+        }
+        return dataSource.getConnection();
+    }
+    
+    /**
+     * Returns the shared connection pool, creating it on first use.
+     * 
+     * @return Connection pool or null if in test mode
+     */
+    public static synchronized ConnectionPool getDataSource() {
+        if (pool != null && !pool.isClosed()) {
+            return pool;
+        }
+        if (testMode) {
+            return null; // Already decided; do not probe every password again
+        }
+        
+        try {
+            Class.forName(JDBC_DRIVER);
+            
+            // Try each password
+            SQLException lastException = null;
+            for (String password : DATABASE_PASSWORDS) {
+                try (Connection probe = DriverManager.getConnection(DATABASE_URL, DATABASE_USER, password)) {
+                    if (!probe.isValid(PROBE_TIMEOUT_SECONDS)) {
+                        throw new SQLException("Connection is not valid");
                     }
+                    pool = new ConnectionPool(DATABASE_URL, DATABASE_USER, password,
+                            POOL_MIN_SIZE, POOL_MAX_SIZE,
+                            POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS,
+                            POOL_VALIDATION_INTERVAL_MS, STATEMENT_CACHE_SIZE);
+                    System.out.println("✓ Database connection established successfully");
+                    System.out.println("  URL: " + DATABASE_URL);
+                    System.out.println("  User: " + DATABASE_USER);
+                    System.out.println("  Pool: min=" + POOL_MIN_SIZE + ", max=" + POOL_MAX_SIZE);
+                    return pool;
+                } catch (SQLException e) {
+                    lastException = e;
+                    // Continue to next password
                 }
-                
-                // All passwords failed
-                System.err.println("✗ Database connection failed with all password attempts");
-                System.err.println("  URL: " + DATABASE_URL);
-                System.err.println("  User: " + DATABASE_USER);
-                System.err.println("  Last error: " + lastException.getMessage());
-                System.err.println("  Running in TEST MODE (mock database)");
-                connectionAttempted = true;
-                return null; // Return null to indicate test mode
-                
-            } catch (ClassNotFoundException e) {
-                System.err.println("✗ MySQL JDBC Driver not found: " + JDBC_DRIVER);
-                System.err.println("  Running in TEST MODE (mock database)");
-                connectionAttempted = true;
-                return null;
             }
+            
+            // All passwords failed
+            System.err.println("✗ Database connection failed with all password attempts");
+            System.err.println("  URL: " + DATABASE_URL);
+            System.err.println("  User: " + DATABASE_USER);
+            System.err.println("  Last error: " + lastException.getMessage());
+            System.err.println("  Running in TEST MODE (mock database)");
+            testMode = true;
+            return null; // Return null to indicate test mode
+            
+        } catch (ClassNotFoundException e) {
+            System.err.println("✗ MySQL JDBC Driver not found: " + JDBC_DRIVER);
+            System.err.println("  Running in TEST MODE (mock database)");
+            testMode = true;
+            return null;
         }
-        return connection;
     }
     
     /**
-     * Safely closes the database connection.
-     * Called on application shutdown.
+     * Runs the registered shutdown hooks, then safely closes the connection
+     * pool. Called on application shutdown.
      */
     public static void closeConnection() {
-        if (connection != null) {
+        // Hooks still need the pool. They run outside the lock so a hook
+        // waiting on another thread's database work cannot deadlock.
+        List<Runnable> hooks;
+        synchronized (DBManager.class) {
+            hooks = new ArrayList<>(shutdownHooks);
+            shutdownHooks.clear();
+        }
+        for (int i = hooks.size() - 1; i >= 0; i--) {
             try {
-                connection.close();
-                System.out.println("Database connection closed");
-            } catch (SQLException e) {
-                System.err.println("Error closing database connection: " + e.getMessage());
+                hooks.get(i).run();
+            } catch (RuntimeException e) {
+                System.err.println("Error in database shutdown hook: " + e.getMessage());
+            }
+        }
+        
+        synchronized (DBManager.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+                System.out.println("Database connection pool closed");
             }
         }
     }
     
     /**
-     * Verifies if the database connection is currently active.
+     * Registers work that must finish while the database is still reachable
+     * (such as flushing queued writes). Hooks run once, newest first, at the
+     * start of closeConnection().
+     */
+    public static synchronized void addShutdownHook(Runnable hook) {
+        shutdownHooks.add(hook);
+    }
+    
+    /**
+     * Verifies if the database connection pool is currently active.
      * 
-     * @return true if connection exists and is not closed
+     * @return true if the pool exists and is not closed
      */
-    public static boolean isConnected() {
-        try {
-            return connection != null && !connection.isClosed();
-        } catch (SQLException e) {
+    public static synchronized boolean isConnected() {
+        return pool != null && !pool.isClosed();
+    }
+    
+    /**
+     * Checks for test mode the way the DAOs see it: creates the pool on
+     * first use, like getConnection(), rather than just looking for one.
+     * The decision is made once; later calls only read a flag, so hot
+     * paths may call this freely.
+     * 
+     * @return true if no database is reachable (getConnection() returns null)
+     */
+    public static boolean isTestMode() {
+        if (testMode) {
+            return true;
+        }
+        ConnectionPool dataSource = pool;
+        if (dataSource != null && !dataSource.isClosed()) {
             return false;
         }
+        return getDataSource() == null;
     }
-}
\ No newline at end of file
+}
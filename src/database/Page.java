@@ -0,0 +1,100 @@
+package database;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated query - SRS Component: 2.3.2 Database Layer
+ *
+ * List screens fetch rows a page at a time instead of materializing a whole
+ * table. Each page carries the cursor of its last row - the (sort key, id)
+ * pair the query is ordered by - and the next page is requested "after" that
+ * cursor:
+ *
+ *   WHERE (sort_col > ? OR (sort_col = ? AND id > ?)) ORDER BY sort_col, id LIMIT ?
+ *
+ * Unlike LIMIT/OFFSET, MySQL seeks straight to the cursor in the index
+ * (InnoDB secondary indexes already end with the primary key), so page 1000
+ * costs the same as page 1.
+ *
+ * Usage:
+ *   Page<Sale> page = saleDAO.getSalesPage(null, 100);   // first page
+ *   while (page.hasNext()) {
+ *       page = saleDAO.getSalesPage(page.getNextCursor(), 100);
+ *   }
+ */
+public class Page<T> {
+    public static final int DEFAULT_SIZE = 100;
+
+    private final List<T> items;
+    private final Cursor nextCursor;
+
+    public Page(List<T> items, Cursor nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public static <T> Page<T> empty() {
+        return new Page<>(Collections.emptyList(), null);
+    }
+
+    /**
+     * Builds a page from a query that fetched limit + 1 rows: the extra row
+     * only signals that another page exists and is dropped.
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, Cursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * @return Position to pass to the next page request, or null on the last page
+     */
+    public Cursor getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Position of a row in a keyset ordering: the sort column value (a
+     * String, Timestamp or Number bound with setObject) plus the row ID as
+     * a unique tie-breaker.
+     */
+    public static final class Cursor {
+        private final Object sortKey;
+        private final int id;
+
+        public Cursor(Object sortKey, int id) {
+            this.sortKey = sortKey;
+            this.id = id;
+        }
+
+        public Object getSortKey() {
+            return sortKey;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return "Cursor[" + sortKey + ", " + id + "]";
+        }
+    }
+}
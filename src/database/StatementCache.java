@@ -0,0 +1,232 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PreparedStatement cache for one pooled physical connection.
+ *
+ * Keyed by SQL text (plus the generated-keys flag) and kept in LRU order.
+ * DAOs keep using the normal idiom
+ *
+ *   try (PreparedStatement ps = c.prepareStatement(SQL)) { ... }
+ *
+ * but the statement they receive is a handle: close() clears its parameters
+ * and hands it back to the cache rather than closing it, so the same SQL is
+ * prepared once per connection instead of once per call.
+ *
+ * If a cached statement is still open when the same SQL is prepared again
+ * on the same connection (nested use), an uncached statement is returned.
+ *
+ * Not thread-safe: a pooled connection is only used by its current borrower.
+ */
+class StatementCache {
+    private final Connection raw;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    StatementCache(Connection raw, int capacity, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.raw = raw;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > StatementCache.this.capacity) {
+                    evictions.increment();
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a handle for the given SQL, preparing it on first use.
+     *
+     * @param sql Statement text
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        if (capacity <= 0) {
+            misses.increment();
+            return raw.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "N:" + sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null) {
+            if (cached.inUse) {
+                // Same SQL already open on this connection; don't share it
+                misses.increment();
+                return raw.prepareStatement(sql, autoGeneratedKeys);
+            }
+            hits.increment();
+            return cached.checkout();
+        }
+
+        misses.increment();
+        cached = new CachedStatement(raw.prepareStatement(sql, autoGeneratedKeys));
+        statements.put(key, cached);
+        return cached.checkout();
+    }
+
+    /**
+     * Makes every statement available again. Called when the connection is
+     * returned to the pool, in case a borrower forgot to close a statement.
+     */
+    void resetAll() {
+        for (CachedStatement cached : new ArrayList<>(statements.values())) {
+            if (cached.inUse) {
+                cached.checkin();
+            }
+        }
+    }
+
+    /**
+     * Closes every cached statement. Called when the physical connection is discarded.
+     */
+    void closeAll() {
+        List<CachedStatement> all = new ArrayList<>(statements.values());
+        statements.clear();
+        for (CachedStatement cached : all) {
+            cached.closeQuietly();
+        }
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    private class CachedStatement {
+        final PreparedStatement statement;
+        boolean inUse = false;
+        boolean evicted = false;
+        PreparedStatement handle;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement checkout() {
+            inUse = true;
+            handle = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new HandleInvocation(this));
+            return handle;
+        }
+
+        void checkin() {
+            inUse = false;
+            handle = null;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                ResultSet open = statement.getResultSet();
+                if (open != null) {
+                    open.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+            } catch (SQLException e) {
+                // Statement is broken; drop it from the cache
+                evicted = true;
+                closeQuietly();
+                removeMapping(this);
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Already unusable
+            }
+        }
+    }
+
+    private void removeMapping(CachedStatement target) {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() == target) {
+                it.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Per-checkout handle: close() returns the statement to the cache.
+     */
+    private static class HandleInvocation implements InvocationHandler {
+        private final CachedStatement cached;
+        private boolean closed = false;
+
+        HandleInvocation(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (cached.handle == proxy) {
+                            cached.checkin();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cached.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.statement + "]";
+                default:
+                    break;
+            }
+
+            if (closed || cached.handle != proxy) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
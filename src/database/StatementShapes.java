@@ -0,0 +1,68 @@
+package database;
+
+/**
+ * Fixed sizes for variable-length SQL - SRS Component: 2.3.2 Database Layer
+ *
+ * Multi-row INSERTs and IN (...) lists produce different SQL text for every
+ * row count. Each pooled connection caches its PreparedStatements by SQL
+ * text (see StatementCache), so one-off statements of 1..500 rows would
+ * fill the cache and evict the hot DAO statements. Statements built here
+ * only come in a few fixed sizes (or the caller's maximum):
+ *
+ * - Multi-row INSERTs cannot repeat a row, so they are split into chunks
+ *   of powers of two (chunkSize): 9 rows go out as 8 + 1, 49 as
+ *   32 + 16 + 1, so a small flush still takes only a few round trips
+ * - IN lists are padded up to the next of PADDED_SIZES by repeating the
+ *   last value, which does not change the result (paddedSize)
+ *
+ * Usage:
+ *   for (int from = 0; from < rows.size(); ) {
+ *       int n = StatementShapes.chunkSize(rows.size() - from, BATCH_SIZE);
+ *       String sql = "INSERT INTO t (a, b) VALUES " + StatementShapes.repeat("(?, ?)", n);
+ *       ...
+ *       from += n;
+ *   }
+ */
+public final class StatementShapes {
+    private static final int[] PADDED_SIZES = {1, 10, 50};
+
+    private StatementShapes() {}
+
+    /**
+     * @return Rows for the next chunk: max if at least max remain, otherwise
+     *         the largest power of two not above remaining
+     */
+    public static int chunkSize(int remaining, int max) {
+        if (remaining >= max) {
+            return max;
+        }
+        return Integer.highestOneBit(Math.max(1, remaining));
+    }
+
+    /**
+     * @return Placeholders for an IN list of count values: the smallest
+     *         fixed size not below count, capped at max
+     */
+    public static int paddedSize(int count, int max) {
+        for (int candidate : PADDED_SIZES) {
+            if (candidate >= count && candidate < max) {
+                return candidate;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return group repeated count times, comma-separated (e.g. "?, ?, ?")
+     */
+    public static String repeat(String group, int count) {
+        StringBuilder sb = new StringBuilder(count * (group.length() + 2));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(group);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Half-open timestamp range for date filters - SRS Component: 2.3.2 Database Layer
+ *
+ * Screens and reports pick whole days ("from 2024-12-01 to 2024-12-07"),
+ * but the columns are DATETIME/TIMESTAMP. Filtering with
+ *
+ *   WHERE DATE(col) BETWEEN ? AND ?
+ *
+ * applies a function to every row, so MySQL cannot use the index on col and
+ * scans the table. A TimeRange turns the days into
+ *
+ *   WHERE col >= '2024-12-01 00:00:00' AND col < '2024-12-08 00:00:00'
+ *
+ * which is a plain index range scan and includes every fraction of a second
+ * of the last day.
+ *
+ * Usage:
+ *   TimeRange range = TimeRange.ofDays(startDate, endDate);
+ *   String sql = "SELECT * FROM sales WHERE " + range.where("sale_datetime");
+ *   range.bind(pstmt, 1);
+ */
+public final class TimeRange {
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    private TimeRange(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @param firstDay First day included
+     * @param lastDay  Last day included
+     */
+    public static TimeRange ofDays(LocalDate firstDay, LocalDate lastDay) {
+        return new TimeRange(firstDay.atStartOfDay(), lastDay.plusDays(1).atStartOfDay());
+    }
+
+    public static TimeRange ofDay(LocalDate day) {
+        return ofDays(day, day);
+    }
+
+    /**
+     * @return "column >= ? AND column < ?", to be bound with bind()
+     */
+    public String where(String column) {
+        return column + " >= ? AND " + column + " < ?";
+    }
+
+    /**
+     * Binds the start and end of the range to two consecutive parameters.
+     *
+     * @return Index of the next parameter
+     */
+    public int bind(PreparedStatement pstmt, int index) throws SQLException {
+        pstmt.setTimestamp(index, Timestamp.valueOf(start));
+        pstmt.setTimestamp(index + 1, Timestamp.valueOf(end));
+        return index + 2;
+    }
+
+    // Inclusive
+    public LocalDateTime getStart() { return start; }
+
+    // Exclusive
+    public LocalDateTime getEnd() { return end; }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ")";
+    }
+}
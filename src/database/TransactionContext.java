@@ -0,0 +1,203 @@
+package database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thread-bound unit of work - SRS Component: 2.3.2 Database Layer
+ *
+ * Binds one connection to the current thread for the duration of a
+ * transaction. While a context is active, DBManager.getConnection() returns
+ * that connection (wrapped so that the DAOs' try-with-resources close() is a
+ * no-op), so every DAO call made on the thread joins the same transaction
+ * and shares a single connection.
+ *
+ * Usage:
+ *   try (TransactionContext tx = TransactionContext.begin(connection)) {
+ *       saleDAO.saveSale(sale);
+ *       productDAO.updateProductQuantity(id, -qty); // same connection
+ *       tx.commit();
+ *   } // rolled back here if commit() was not reached
+ *
+ * Work that must only happen once the data is durable (cache updates,
+ * in-memory counters) is registered with afterCommit(). It runs when a
+ * committed context is closed, after the connection has been unbound, and
+ * is dropped on rollback.
+ *
+ * Contexts do not nest: beginning a second one on the same thread fails.
+ */
+public final class TransactionContext implements AutoCloseable {
+    private static final ThreadLocal<TransactionContext> CURRENT = new ThreadLocal<>();
+
+    private final Connection connection;
+    private final Connection participant;
+    private final boolean ownsConnection;
+    private final boolean previousAutoCommit;
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
+    private boolean completed = false;
+    private boolean committed = false;
+    private boolean closed = false;
+
+    private TransactionContext(Connection connection, boolean ownsConnection) throws SQLException {
+        this.connection = connection;
+        this.ownsConnection = ownsConnection;
+        this.previousAutoCommit = connection.getAutoCommit();
+        this.participant = createParticipant(connection);
+        connection.setAutoCommit(false);
+    }
+
+    /**
+     * Starts a transaction on a connection borrowed from the pool. The
+     * connection is returned to the pool when the context is closed.
+     *
+     * @return Active transaction context, or null in test mode (no database)
+     */
+    public static TransactionContext begin() throws SQLException {
+        ensureNoActiveTransaction();
+        Connection borrowed = DBManager.getConnection();
+        if (borrowed == null) {
+            return null;
+        }
+        try {
+            return bind(new TransactionContext(borrowed, true));
+        } catch (SQLException e) {
+            borrowed.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a transaction on a connection the caller already holds. The
+     * caller keeps ownership; closing the context only restores auto-commit.
+     */
+    public static TransactionContext begin(Connection connection) throws SQLException {
+        if (connection == null) {
+            throw new SQLException("Cannot begin a transaction without a connection");
+        }
+        ensureNoActiveTransaction();
+        return bind(new TransactionContext(connection, false));
+    }
+
+    /**
+     * @return The connection bound to the current thread's transaction, or
+     *         null if no transaction is active
+     */
+    public static Connection currentConnection() {
+        TransactionContext context = CURRENT.get();
+        return context != null ? context.participant : null;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Runs the action after the current thread's transaction commits, or
+     * immediately if no transaction is active (auto-commit writes are
+     * already durable).
+     */
+    public static void afterCommit(Runnable action) {
+        TransactionContext context = CURRENT.get();
+        if (context != null) {
+            context.afterCommitActions.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    public void commit() throws SQLException {
+        if (closed || completed) {
+            throw new SQLException("Transaction is no longer active");
+        }
+        connection.commit();
+        completed = true;
+        committed = true;
+    }
+
+    public void rollback() {
+        if (closed || completed) {
+            return;
+        }
+        completed = true;
+        afterCommitActions.clear();
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back transaction: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ends the unit of work: rolls back if commit() was not called, restores
+     * auto-commit, unbinds from the thread, returns a borrowed connection and
+     * finally runs the after-commit actions of a committed transaction.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        rollback();
+        closed = true;
+        CURRENT.remove();
+        try {
+            connection.setAutoCommit(previousAutoCommit);
+        } finally {
+            if (ownsConnection) {
+                connection.close();
+            }
+            if (committed) {
+                runAfterCommitActions();
+            }
+        }
+    }
+
+    private void runAfterCommitActions() {
+        for (Runnable action : afterCommitActions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error in after-commit action: " + e.getMessage());
+            }
+        }
+        afterCommitActions.clear();
+    }
+
+    private static void ensureNoActiveTransaction() {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("A transaction is already active on this thread");
+        }
+    }
+
+    private static TransactionContext bind(TransactionContext context) {
+        CURRENT.set(context);
+        return context;
+    }
+
+    // View of the bound connection for DAOs: close() leaves the transaction open
+    private static Connection createParticipant(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+}
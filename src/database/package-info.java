@@ -19,6 +19,9 @@
  * 
  * Key Classes:
  * - DBManager: Manages database connection lifecycle
+ * - ConnectionPool: Bounded pool of reusable JDBC connections (DataSource)
+ * - TransactionContext: Binds one connection to the current unit of work
+ * - Page: One page of a keyset-paginated list query plus its next cursor
  * - UserDAO: CRUD operations for users
  * - ProductDAO: CRUD operations for products
  * - SaleDAO: CRUD operations for sales transactions
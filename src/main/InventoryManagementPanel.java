@@ -27,7 +27,7 @@ public class InventoryManagementPanel extends JPanel {
     private AlertManager alertManager;
     
     private JTable productsTable;
-    private DefaultTableModel productsTableModel;
+    private PagedTableModel<Product> productsTableModel;
     private JTextField searchField;
     private JComboBox<String> categoryFilter;
     private JButton addButton, editButton, deleteButton, restockButton;
@@ -52,12 +52,19 @@ public class InventoryManagementPanel extends JPanel {
     private void initComponents() {
         // Products table
         String[] columns = {"ID", "Name", "Category", "Price", "Quantity", "Min Stock", "Status"};
-        productsTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+        Class<?>[] columnClasses = {Integer.class, String.class, String.class, String.class,
+                                    Integer.class, Integer.class, String.class};
+        productsTableModel = new PagedTableModel<>(columns, columnClasses, (product, column) -> {
+            switch (column) {
+                case 0: return product.getProductId();
+                case 1: return product.getName();
+                case 2: return product.getCategory();
+                case 3: return String.format("$%.2f", product.getPrice());
+                case 4: return product.getQuantity();
+                case 5: return product.getMinStock();
+                default: return product.getQuantity() <= product.getMinStock() ? "LOW STOCK" : "OK";
             }
-        };
+        });
         productsTable = new JTable(productsTableModel);
         productsTable.setRowHeight(25);
         
@@ -119,42 +126,24 @@ public class InventoryManagementPanel extends JPanel {
         loadProducts();
     }
     
+    // Pages through all active products; rows are fetched as the table scrolls
     private void loadProducts() {
-        SwingWorker<List<Product>, Void> worker = new SwingWorker<List<Product>, Void>() {
+        productsTableModel.setSource(new PagedTableModel.PageSource<Product>() {
             @Override
-            protected List<Product> doInBackground() throws Exception {
-                return productService.getAllActiveProducts();
+            public int count() {
+                return productService.getTotalProductCount();
             }
             
             @Override
-            protected void done() {
-                try {
-                    List<Product> products = get();
-                    productsTableModel.setRowCount(0);
-                    
-                    for (Product product : products) {
-                        String status = product.getQuantity() <= product.getMinStock() ? 
-                                      "LOW STOCK" : "OK";
-                        
-                        productsTableModel.addRow(new Object[]{
-                            product.getProductId(),
-                            product.getName(),
-                            product.getCategory(),
-                            String.format("$%.2f", product.getPrice()),
-                            product.getQuantity(),
-                            product.getMinStock(),
-                            status
-                        });
-                    }
-                } catch (Exception e) {
-                    JOptionPane.showMessageDialog(InventoryManagementPanel.this,
-                        "Error loading products: " + e.getMessage(),
-                        "Database Error", JOptionPane.ERROR_MESSAGE);
-                }
+            public Page<Product> fetch(Page.Cursor after, int limit) throws Exception {
+                return productService.getProductsPage(after, limit);
             }
-        };
-        
-        worker.execute();
+            
+            @Override
+            public Page<Product> fetchAt(int offset, int limit) throws Exception {
+                return productService.getProductsPageAt(offset, limit);
+            }
+        });
     }
     
     private void searchProducts() {
@@ -166,22 +155,7 @@ public class InventoryManagementPanel extends JPanel {
         
         try {
             List<Product> products = productService.searchProducts(query);
-            productsTableModel.setRowCount(0);
-            
-            for (Product product : products) {
-                String status = product.getQuantity() <= product.getMinStock() ? 
-                              "LOW STOCK" : "OK";
-                
-                productsTableModel.addRow(new Object[]{
-                    product.getProductId(),
-                    product.getName(),
-                    product.getCategory(),
-                    String.format("$%.2f", product.getPrice()),
-                    product.getQuantity(),
-                    product.getMinStock(),
-                    status
-                });
-            }
+            productsTableModel.setSource(PagedTableModel.listSource(products));
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this,
                 "Error searching products: " + e.getMessage(),
@@ -199,22 +173,7 @@ public class InventoryManagementPanel extends JPanel {
         try {
             ProductDAO productDAO = new ProductDAO();
             List<Product> products = productDAO.filterByCategory(category);
-            productsTableModel.setRowCount(0);
-            
-            for (Product product : products) {
-                String status = product.getQuantity() <= product.getMinStock() ? 
-                              "LOW STOCK" : "OK";
-                
-                productsTableModel.addRow(new Object[]{
-                    product.getProductId(),
-                    product.getName(),
-                    product.getCategory(),
-                    String.format("$%.2f", product.getPrice()),
-                    product.getQuantity(),
-                    product.getMinStock(),
-                    status
-                });
-            }
+            productsTableModel.setSource(PagedTableModel.listSource(products));
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this,
                 "Error filtering products: " + e.getMessage(),
@@ -240,7 +199,11 @@ public class InventoryManagementPanel extends JPanel {
             return;
         }
         
-        int productId = (int) productsTableModel.getValueAt(selectedRow, 0);
+        Product selected = productsTableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // Row is still loading
+        }
+        int productId = selected.getProductId();
         
         try {
             Product product = productService.getProductById(productId);
@@ -268,8 +231,12 @@ public class InventoryManagementPanel extends JPanel {
             return;
         }
         
-        int productId = (int) productsTableModel.getValueAt(selectedRow, 0);
-        String productName = (String) productsTableModel.getValueAt(selectedRow, 1);
+        Product selected = productsTableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // Row is still loading
+        }
+        int productId = selected.getProductId();
+        String productName = selected.getName();
         
         int confirm = JOptionPane.showConfirmDialog(this,
             "Deactivate product: " + productName + "?\n\n" +
@@ -300,9 +267,13 @@ public class InventoryManagementPanel extends JPanel {
             return;
         }
         
-        int productId = (int) productsTableModel.getValueAt(selectedRow, 0);
-        String productName = (String) productsTableModel.getValueAt(selectedRow, 1);
-        int currentQty = (int) productsTableModel.getValueAt(selectedRow, 4);
+        Product selected = productsTableModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // Row is still loading
+        }
+        int productId = selected.getProductId();
+        String productName = selected.getName();
+        int currentQty = selected.getQuantity();
         
         String input = JOptionPane.showInputDialog(this,
             "Restock " + productName + "\nCurrent quantity: " + currentQty + "\n\n" +
@@ -330,9 +301,6 @@ public class InventoryManagementPanel extends JPanel {
                 
                 loadProducts();
                 
-                // Check if alerts need to be resolved
-                alertManager.checkStockLevels();
-                
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this,
                     "Please enter a valid positive number",
@@ -355,8 +323,7 @@ public class InventoryManagementPanel extends JPanel {
     }
     
     private void checkAlerts() {
-        alertManager.checkStockLevels();
-        
+        // Alerts are raised as stock changes; no scan needed here
         List<stock.LowStockAlert> alerts = alertManager.getActiveAlerts();
         
         if (alerts.isEmpty()) {
@@ -597,6 +564,13 @@ public class InventoryManagementPanel extends JPanel {
         private JTable movementsTable;
         private DefaultTableModel tableModel;
         private JComboBox<String> filterCombo;
+        private JButton loadMoreButton;
+        private Page.Cursor nextCursor;
+        // Current filter; null means no restriction
+        private String filterType;
+        private Integer filterUserId;
+        // Bumped whenever the table is cleared; pages loaded for an older generation are dropped
+        private int generation;
         
         public StockMovementsDialog(Frame parent, StockMovementService service, int userId) {
             super(parent, "Stock Movement History", true);
@@ -625,6 +599,10 @@ public class InventoryManagementPanel extends JPanel {
             String[] filters = {"All Movements", "Sales", "Restocks", "Adjustments", "My Actions"};
             filterCombo = new JComboBox<>(filters);
             filterCombo.addActionListener(e -> filterMovements());
+            
+            loadMoreButton = new JButton("Load More");
+            loadMoreButton.setEnabled(false);
+            loadMoreButton.addActionListener(e -> loadMovementsPage(nextCursor));
         }
         
         private void layoutComponents() {
@@ -640,20 +618,42 @@ public class InventoryManagementPanel extends JPanel {
             JScrollPane scrollPane = new JScrollPane(movementsTable);
             scrollPane.setBorder(BorderFactory.createTitledBorder("Stock Movements"));
             add(scrollPane, BorderLayout.CENTER);
+            
+            JPanel pagingPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+            pagingPanel.add(loadMoreButton);
+            add(pagingPanel, BorderLayout.SOUTH);
         }
         
         private void loadMovements() {
-            SwingWorker<List<StockMovement>, Void> worker = new SwingWorker<List<StockMovement>, Void>() {
+            generation++;
+            tableModel.setRowCount(0);
+            loadMovementsPage(null);
+        }
+        
+        // Appends the page after the cursor (null = first page)
+        private void loadMovementsPage(Page.Cursor after) {
+            loadMoreButton.setEnabled(false);
+            // Captured on the EDT; the worker thread must not read the dialog's fields
+            final int requestGeneration = generation;
+            final String type = filterType;
+            final Integer user = filterUserId;
+            SwingWorker<Page<StockMovement>, Void> worker = new SwingWorker<Page<StockMovement>, Void>() {
                 @Override
-                protected List<StockMovement> doInBackground() throws Exception {
-                    return movementService.getAllMovementHistory();
+                protected Page<StockMovement> doInBackground() throws Exception {
+                    return movementService.getMovementHistoryPage(type, user,
+                        after, Page.DEFAULT_SIZE);
                 }
                 
                 @Override
                 protected void done() {
+                    if (requestGeneration != generation) {
+                        return; // The filter changed meanwhile; a newer load owns the table
+                    }
                     try {
-                        List<StockMovement> movements = get();
-                        populateTable(movements);
+                        Page<StockMovement> page = get();
+                        appendRows(page.getItems());
+                        nextCursor = page.getNextCursor();
+                        loadMoreButton.setEnabled(page.hasNext());
                     } catch (Exception e) {
                         JOptionPane.showMessageDialog(StockMovementsDialog.this,
                             "Error loading movements: " + e.getMessage(),
@@ -665,9 +665,7 @@ public class InventoryManagementPanel extends JPanel {
             worker.execute();
         }
         
-        private void populateTable(List<StockMovement> movements) {
-            tableModel.setRowCount(0);
-            
+        private void appendRows(List<StockMovement> movements) {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
             
             for (StockMovement movement : movements) {
@@ -687,42 +685,21 @@ public class InventoryManagementPanel extends JPanel {
             }
         }
         
+        // Filtering is done by the paged query, so "Load More" keeps working
         private void filterMovements() {
             String filter = (String) filterCombo.getSelectedItem();
-            if ("All Movements".equals(filter)) {
-                loadMovements();
-                return;
+            filterType = null;
+            filterUserId = null;
+            if ("Sales".equals(filter)) {
+                filterType = "SALE";
+            } else if ("Restocks".equals(filter)) {
+                filterType = "RESTOCK";
+            } else if ("Adjustments".equals(filter)) {
+                filterType = "ADJUSTMENT";
+            } else if ("My Actions".equals(filter)) {
+                filterUserId = userId;
             }
-            
-            SwingWorker<List<StockMovement>, Void> worker = new SwingWorker<List<StockMovement>, Void>() {
-                @Override
-                protected List<StockMovement> doInBackground() throws Exception {
-                    List<StockMovement> allMovements = movementService.getAllMovementHistory();
-                    
-                    if ("My Actions".equals(filter)) {
-                        allMovements.removeIf(m -> m.getUserId() != userId);
-                    } else {
-                        String type = filter.toUpperCase().replace("S", ""); // Remove plural
-                        allMovements.removeIf(m -> !m.getMovementType().equals(type));
-                    }
-                    
-                    return allMovements;
-                }
-                
-                @Override
-                protected void done() {
-                    try {
-                        List<StockMovement> filtered = get();
-                        populateTable(filtered);
-                    } catch (Exception e) {
-                        JOptionPane.showMessageDialog(StockMovementsDialog.this,
-                            "Error filtering movements: " + e.getMessage(),
-                            "Filter Error", JOptionPane.ERROR_MESSAGE);
-                    }
-                }
-            };
-            
-            worker.execute();
+            loadMovements();
         }
     }
 
@@ -5,7 +5,9 @@ import report.*;
 import sale.*;
 import login.*;
 import product.*;
+import stock.DemandForecaster;
 import stock.LowStockAlert;
+import stock.StockLedger;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -107,6 +109,16 @@ public class MainDashboard extends JFrame {
         // Initialize services
         initializeServices();
         
+        // Raise low stock alerts as quantities change; snapshot stock daily; forecast demand;
+        // fill the daily sales rollup on first start; seed today's live sales counters
+        if (connection != null) {
+            AlertManager.startMonitoring();
+            StockLedger.startSnapshots();
+            DemandForecaster.startUpdates();
+            SalesRollupBackfill.startIfEmpty();
+            SalesTelemetry.start();
+        }
+        
         // Setup GUI
         initComponents();
         layoutComponents();
@@ -1028,8 +1040,10 @@ public class MainDashboard extends JFrame {
         
         if (option == JOptionPane.YES_OPTION) {
             showDailySummary();
+            database.DBManager.closeConnection();
             System.exit(0);
         } else if (option == JOptionPane.NO_OPTION) {
+            database.DBManager.closeConnection();
             System.exit(0);
         }
     }
@@ -1194,16 +1208,10 @@ public class MainDashboard extends JFrame {
                     totalProducts = productService.getTotalProductCount();
                     lowStockItems = productService.getLowStockCount();
 
-                    // Get today's sales statistics
-                    try {
-                        SaleDAO.SalesStatistics stats = salesProcessor.getTodayStatistics();
-                        todaySalesCount = stats.getTotalSales();
-                        todayRevenue = stats.getTotalRevenue();
-                    } catch (Exception e) {
-                        todaySalesCount = 0;
-                        todayRevenue = 0.0;
-                        System.err.println("Error getting sales statistics: " + e.getMessage());
-                    }
+                    // Get today's sales statistics from the live counters (no query)
+                    SalesTelemetry telemetry = SalesTelemetry.getInstance();
+                    todaySalesCount = (int) telemetry.getTodaySaleCount();
+                    todayRevenue = telemetry.getTodayRevenue();
 
                     // Get active alerts
                     AlertManager alertManager = new AlertManager();
@@ -1268,12 +1276,9 @@ public class MainDashboard extends JFrame {
 
     private void checkLowStockAlerts() {
         try {
-            // Create alert manager
+            // Alerts are raised as stock changes; no scan needed here
             AlertManager alertManager = new AlertManager();
 
-            // Check current stock levels
-            alertManager.checkStockLevels();
-
             // Get active alerts
             java.util.List<LowStockAlert> alerts = alertManager.getActiveAlerts();
 
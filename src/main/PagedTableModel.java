@@ -0,0 +1,311 @@
+package main;
+
+import database.Page;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lazily loaded table model for large lists - SRS 3.1 Performance
+ *
+ * Instead of copying every record into a DefaultTableModel, the table is
+ * told the total row count up front and rows are fetched in fixed-size
+ * blocks, in the background, the first time the viewport asks for them.
+ * Only the most recently used blocks are kept; older ones are dropped and
+ * fetched again if the user scrolls back.
+ *
+ * - Rows are kept as domain objects and turned into cell values on demand
+ *   by a ColumnMapper, so no Object[] per row is retained
+ * - Each loaded block remembers the keyset cursor of the block after it, so
+ *   scrolling down is a keyset seek; jumping to a block with no known
+ *   cursor (e.g. dragging the scrollbar) falls back to an OFFSET query
+ * - refresh() re-counts and discards everything, ignoring fetches that were
+ *   still in flight
+ *
+ * Cells of a block that is still loading read as null. The model must not
+ * be given a RowSorter, which would pull every row to sort it.
+ */
+public class PagedTableModel<T> extends AbstractTableModel {
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+    public static final int DEFAULT_MAX_BLOCKS = 10;
+
+    /**
+     * Supplies the rows behind the model, usually by delegating to a paged DAO call.
+     */
+    public interface PageSource<T> {
+        int count() throws Exception;
+
+        // after is null for the first block
+        Page<T> fetch(Page.Cursor after, int limit) throws Exception;
+
+        Page<T> fetchAt(int offset, int limit) throws Exception;
+    }
+
+    public interface ColumnMapper<T> {
+        Object valueAt(T row, int column);
+    }
+
+    private final String[] columnNames;
+    private final Class<?>[] columnClasses;
+    private final ColumnMapper<T> mapper;
+    private final int blockSize;
+    private final int maxBlocks;
+
+    private volatile PageSource<T> source;
+    private volatile int rowCount = 0;
+    private volatile int generation = 0;
+
+    // Guarded by this: block index -> rows, least recently used first
+    private final LinkedHashMap<Integer, List<T>> blocks;
+    private final Map<Integer, Page.Cursor> blockCursors = new HashMap<>();
+    private final Set<Integer> pendingBlocks = new HashSet<>();
+
+    public PagedTableModel(String[] columnNames, Class<?>[] columnClasses, ColumnMapper<T> mapper) {
+        this(columnNames, columnClasses, mapper, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BLOCKS);
+    }
+
+    public PagedTableModel(String[] columnNames, Class<?>[] columnClasses, ColumnMapper<T> mapper,
+                           int blockSize, int maxBlocks) {
+        this.columnNames = columnNames;
+        this.columnClasses = columnClasses;
+        this.mapper = mapper;
+        this.blockSize = blockSize;
+        this.maxBlocks = maxBlocks;
+        this.blocks = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > PagedTableModel.this.maxBlocks;
+            }
+        };
+    }
+
+    /**
+     * Serves an in-memory list (e.g. a search result) through the same model.
+     */
+    public static <T> PageSource<T> listSource(List<T> rows) {
+        return new PageSource<T>() {
+            @Override
+            public int count() {
+                return rows.size();
+            }
+
+            @Override
+            public Page<T> fetch(Page.Cursor after, int limit) {
+                return fetchAt(after == null ? 0 : after.getId(), limit);
+            }
+
+            @Override
+            public Page<T> fetchAt(int offset, int limit) {
+                int end = Math.min(rows.size(), offset + limit);
+                List<T> items = offset < end ? rows.subList(offset, end) : Collections.emptyList();
+                Page.Cursor next = end < rows.size() ? new Page.Cursor(null, end) : null;
+                return new Page<>(items, next);
+            }
+        };
+    }
+
+    /**
+     * Switches to a new source and reloads.
+     */
+    public void setSource(PageSource<T> source) {
+        this.source = source;
+        refresh();
+    }
+
+    /**
+     * Discards all loaded rows, re-counts in the background and lets the
+     * table fetch the visible blocks again.
+     */
+    public void refresh() {
+        int refreshGeneration;
+        synchronized (this) {
+            refreshGeneration = ++generation;
+            blocks.clear();
+            blockCursors.clear();
+            pendingBlocks.clear();
+        }
+        rowCount = 0;
+        fireTableDataChanged();
+
+        PageSource<T> current = source;
+        if (current == null) {
+            return;
+        }
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return current.count();
+            }
+
+            @Override
+            protected void done() {
+                if (refreshGeneration != generation) {
+                    return;
+                }
+                try {
+                    rowCount = get();
+                } catch (Exception e) {
+                    System.err.println("Error counting rows: " + e.getMessage());
+                    rowCount = 0;
+                }
+                fireTableDataChanged();
+            }
+        }.execute();
+    }
+
+    /**
+     * @return The row object, or null if its block is not loaded (a fetch is started)
+     */
+    public T getRow(int rowIndex) {
+        int block = rowIndex / blockSize;
+        List<T> rows;
+        synchronized (this) {
+            rows = blocks.get(block);
+        }
+        if (rows == null) {
+            requestBlock(block);
+            return null;
+        }
+        int offset = rowIndex % blockSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    /**
+     * Returns the row object, fetching its block on the calling thread if
+     * needed. For background jobs (e.g. export) that walk every row.
+     */
+    public T getRowLoading(int rowIndex) throws Exception {
+        int block = rowIndex / blockSize;
+        List<T> rows;
+        synchronized (this) {
+            rows = blocks.get(block);
+        }
+        if (rows == null) {
+            int loadGeneration;
+            synchronized (this) {
+                loadGeneration = generation;
+            }
+            rows = load(block, loadGeneration);
+        }
+        int offset = rowIndex % blockSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    public Object getValueAtLoading(int rowIndex, int columnIndex) throws Exception {
+        T row = getRowLoading(rowIndex);
+        return row != null ? mapper.valueAt(row, columnIndex) : null;
+    }
+
+    public synchronized int getLoadedBlockCount() {
+        return blocks.size();
+    }
+
+    // ---- AbstractTableModel ----
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return columnClasses != null ? columnClasses[columnIndex] : Object.class;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T row = getRow(rowIndex);
+        return row != null ? mapper.valueAt(row, columnIndex) : null;
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    // ---- Internals ----
+
+    private void requestBlock(int block) {
+        int requestGeneration;
+        synchronized (this) {
+            if (source == null || !pendingBlocks.add(block)) {
+                return; // Already being fetched
+            }
+            requestGeneration = generation;
+        }
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() throws Exception {
+                return load(block, requestGeneration);
+            }
+
+            @Override
+            protected void done() {
+                synchronized (PagedTableModel.this) {
+                    if (requestGeneration == generation) {
+                        pendingBlocks.remove(block);
+                    }
+                }
+                try {
+                    get();
+                } catch (Exception e) {
+                    System.err.println("Error loading rows: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    // Fetches one block, stores it and repaints its rows on the EDT
+    private List<T> load(int block, int loadGeneration) throws Exception {
+        PageSource<T> current = source;
+        Page.Cursor cursor;
+        synchronized (this) {
+            cursor = blockCursors.get(block);
+        }
+
+        Page<T> page;
+        if (block == 0) {
+            page = current.fetch(null, blockSize);
+        } else if (cursor != null) {
+            page = current.fetch(cursor, blockSize);
+        } else {
+            page = current.fetchAt(block * blockSize, blockSize);
+        }
+
+        List<T> rows = page.getItems();
+        synchronized (this) {
+            if (loadGeneration != generation) {
+                return rows; // Stale fetch from before a refresh
+            }
+            blocks.put(block, rows);
+            if (page.hasNext()) {
+                blockCursors.put(block + 1, page.getNextCursor());
+            }
+        }
+
+        int first = block * blockSize;
+        SwingUtilities.invokeLater(() -> {
+            if (loadGeneration == generation && first < rowCount) {
+                fireTableRowsUpdated(first, Math.min(rowCount, first + blockSize) - 1);
+            }
+        });
+        return rows;
+    }
+}
@@ -0,0 +1,28 @@
+package product;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a conditional stock deduction finds less stock than requested.
+ * Carries the product and the quantities so callers can report the line
+ * that could not be fulfilled.
+ */
+public class InsufficientStockException extends SQLException {
+    private final int productId;
+    private final int available;
+    private final int requested;
+
+    public InsufficientStockException(int productId, int available, int requested) {
+        super("Insufficient stock for product ID " + productId +
+                ". Available: " + available + ", Requested: " + requested);
+        this.productId = productId;
+        this.available = available;
+        this.requested = requested;
+    }
+
+    public int getProductId() { return productId; }
+
+    public int getAvailable() { return available; }
+
+    public int getRequested() { return requested; }
+}
@@ -51,6 +51,14 @@ public class Product {
     }
 
     public Product() {}
+
+    public Product copy() {
+        Product copy = new Product(productId, name, quantity, price, minStock);
+        copy.category = category;
+        copy.supplierId = supplierId;
+        copy.active = active;
+        return copy;
+    }
     @Override
     public String toString() {
         return productId + " | " + name + " | " + category + " | Qty: " + quantity;
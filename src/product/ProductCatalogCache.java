@@ -0,0 +1,274 @@
+package product;
+
+import database.TransactionContext;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory catalog of active products - SRS 3.1 Performance
+ *
+ * Shared by every ProductService so that screens which list the catalog
+ * (sales combo boxes, inventory table, search, alert scans) read from
+ * memory instead of running SELECT * on products each time.
+ *
+ * - Products are held in a concurrent map keyed by product ID, plus a
+ *   name-sorted view that is rebuilt lazily after a write; a reload builds
+ *   a new map and swaps it in, so readers never find it half-filled
+ * - ProductDAO writes (save, update, deactivate, quantity changes) are
+ *   applied here after their transaction commits
+ * - The whole catalog is reloaded from MySQL when it is older than the
+ *   refresh interval, to pick up changes made by other terminals
+ * - Readers always receive copies, never the cached instances
+ * - Derived structures (e.g. ProductSearchIndex) register a Listener to
+ *   follow changes incrementally
+ */
+public class ProductCatalogCache {
+    private static final long REFRESH_INTERVAL_MS = Long.getLong("nardo.catalog.refreshMs", 60 * 1000L);
+    private static final Comparator<Product> BY_NAME =
+            Comparator.comparing(Product::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparingInt(Product::getProductId);
+
+    private static ProductCatalogCache instance;
+
+    private final ProductDAO loader = new ProductDAO();
+    // Replaced as a whole by reload(), so readers never see a half-filled map
+    private volatile Map<Integer, Product> products = new ConcurrentHashMap<>();
+    private volatile List<Product> sortedByName = null; // null = rebuild on next read
+    private volatile long loadedAt = 0;                   // 0 = never loaded
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Notified of catalog changes. Called while the cache lock is held,
+     * so implementations must not call back into the cache.
+     */
+    public interface Listener {
+        void catalogReloaded(Collection<Product> products);
+
+        // current is null when the product left the catalog
+        void productChanged(Product previous, Product current);
+    }
+
+    private ProductCatalogCache() {}
+
+    public static synchronized ProductCatalogCache getInstance() {
+        if (instance == null) {
+            instance = new ProductCatalogCache();
+        }
+        return instance;
+    }
+
+    /**
+     * @return Copies of all active products ordered by name
+     */
+    public List<Product> getAllActiveProducts() throws SQLException {
+        List<Product> view = currentView();
+        List<Product> copies = new ArrayList<>(view.size());
+        for (Product product : view) {
+            copies.add(product.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * @return Copy of the active product, or null if it is not in the catalog
+     */
+    public Product getProduct(int productId) throws SQLException {
+        ensureFresh();
+        Product product = products.get(productId);
+        return product != null ? product.copy() : null;
+    }
+
+    /**
+     * @return Copies of the given active products ordered by name; IDs not
+     *         in the catalog are skipped
+     */
+    public List<Product> getProducts(int[] productIds) throws SQLException {
+        ensureFresh();
+        Map<Integer, Product> current = products;
+        List<Product> result = new ArrayList<>(productIds.length);
+        for (int productId : productIds) {
+            Product product = current.get(productId);
+            if (product != null) {
+                result.add(product.copy());
+            }
+        }
+        result.sort(BY_NAME);
+        return result;
+    }
+
+    // ---- Write-through (called by ProductDAO) ----
+
+    void productSaved(Product product) {
+        Product copy = product.copy();
+        TransactionContext.afterCommit(() -> {
+            synchronized (this) {
+                Product previous = copy.isActive()
+                        ? products.put(copy.getProductId(), copy)
+                        : products.remove(copy.getProductId());
+                changed(previous, copy.isActive() ? copy : null);
+            }
+        });
+    }
+
+    void productUpdated(Product product) {
+        Product copy = product.copy();
+        TransactionContext.afterCommit(() -> {
+            synchronized (this) {
+                // Only products already in the catalog are active
+                if (products.containsKey(copy.getProductId())) {
+                    Product cached = products.get(copy.getProductId());
+                    copy.setActive(cached.isActive());
+                    products.put(copy.getProductId(), copy);
+                    changed(cached, copy);
+                }
+            }
+        });
+    }
+
+    void productDeactivated(int productId) {
+        TransactionContext.afterCommit(() -> {
+            synchronized (this) {
+                Product previous = products.remove(productId);
+                if (previous != null) {
+                    changed(previous, null);
+                }
+            }
+        });
+    }
+
+    // Absolute, so a reload that already read the committed quantity is not counted twice
+    void quantitySet(int productId, int newQuantity) {
+        TransactionContext.afterCommit(() -> {
+            synchronized (this) {
+                Product cached = products.get(productId);
+                if (cached != null) {
+                    Product copy = cached.copy();
+                    copy.setQuantity(newQuantity);
+                    products.put(productId, copy);
+                    changed(cached, copy);
+                }
+            }
+        });
+    }
+
+    /**
+     * Registers a listener and, under the same lock, hands it the current
+     * contents so it cannot miss a change.
+     */
+    public synchronized void addListener(Listener listener) throws SQLException {
+        ensureFresh();
+        listeners.add(listener);
+        listener.catalogReloaded(Collections.unmodifiableCollection(products.values()));
+    }
+
+    /**
+     * Forces a full reload from the database on the next read.
+     */
+    public void invalidate() {
+        loadedAt = 0;
+    }
+
+    // ---- Metrics ----
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    /**
+     * @return Milliseconds since the catalog was last loaded from MySQL, or -1 if never loaded
+     */
+    public long getStalenessMillis() {
+        long loaded = loadedAt;
+        return loaded == 0 ? -1 : System.currentTimeMillis() - loaded;
+    }
+
+    // ---- Internals ----
+
+    private List<Product> currentView() throws SQLException {
+        ensureFresh();
+        List<Product> view = sortedByName;
+        return view != null ? view : rebuildView();
+    }
+
+    private void ensureFresh() throws SQLException {
+        if (needsReload()) {
+            misses.increment();
+            reload();
+        } else {
+            hits.increment();
+        }
+    }
+
+    private boolean needsReload() {
+        long loaded = loadedAt;
+        return loaded == 0 || System.currentTimeMillis() - loaded > REFRESH_INTERVAL_MS;
+    }
+
+    private synchronized void reload() throws SQLException {
+        if (!needsReload()) {
+            return; // Another thread reloaded while we waited
+        }
+        List<Product> fresh = loader.getAllProducts();
+        Map<Integer, Product> loaded = new ConcurrentHashMap<>(fresh.size() * 2);
+        for (Product product : fresh) {
+            loaded.put(product.getProductId(), product);
+        }
+        products = loaded;
+        loads.increment();
+        sortedByName = null;
+        loadedAt = System.currentTimeMillis();
+        Collection<Product> contents = Collections.unmodifiableCollection(loaded.values());
+        for (Listener listener : listeners) {
+            listener.catalogReloaded(contents);
+        }
+    }
+
+    private synchronized List<Product> rebuildView() {
+        List<Product> view = sortedByName;
+        if (view == null) {
+            List<Product> sorted = new ArrayList<>(products.values());
+            sorted.sort(BY_NAME);
+            view = Collections.unmodifiableList(sorted);
+            sortedByName = view;
+        }
+        return view;
+    }
+
+    private void changed(Product previous, Product current) {
+        writes.increment();
+        sortedByName = null;
+        for (Listener listener : listeners) {
+            listener.productChanged(previous, current);
+        }
+    }
+}
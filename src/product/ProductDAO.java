@@ -2,11 +2,23 @@ package product;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.sql.Connection;
 import database.DBManager;
+import database.Page;
+import database.StatementShapes;
+import database.TransactionContext;
 
 public class ProductDAO {
+    // Compiled SQL per ProductQuery shape, shared by all DAO instances
+    private static final Map<String, String> COMPILED_QUERIES = new ConcurrentHashMap<>();
+    // Product IDs per IN (...) list in getStockLevels()
+    private static final int IN_LIST_SIZE = 500;
+
     Connection connection;
     public ProductDAO() {}
 
@@ -21,6 +33,17 @@ public class ProductDAO {
             ps.setInt(1, quantityDelta);
             ps.setInt(2, productId);
             int rowsUpdated = ps.executeUpdate();
+            if (rowsUpdated > 0) {
+                StockLevel level = getStockLevels(c, Collections.singletonList(productId)).get(productId);
+                if (level != null) {
+                    ProductCatalogCache.getInstance().quantitySet(productId, level.quantity);
+                    // Only a decrease can take stock down to its minimum
+                    if (quantityDelta < 0 && level.active) {
+                        StockThresholdMonitor.getInstance().quantityChanged(productId,
+                                level.quantity - quantityDelta, level.quantity, level.minStock);
+                    }
+                }
+            }
             return rowsUpdated > 0;
         } catch (SQLException e) {
             System.err.println("Error updating product quantity: " + e.getMessage());
@@ -72,6 +95,126 @@ public class ProductDAO {
         return list;
     }
 
+    /**
+     * One page of active products ordered by (name, product_id).
+     *
+     * @param after Cursor of the previous page's last row, or null for the first page
+     * @param limit Maximum number of products in the page
+     */
+    public Page<Product> getProductsPage(Page.Cursor after, int limit) throws SQLException {
+        String sql = after == null
+                ? "SELECT * FROM products WHERE is_active = TRUE ORDER BY name, product_id LIMIT ?"
+                : "SELECT * FROM products WHERE is_active = TRUE " +
+                  "AND (name > ? OR (name = ? AND product_id > ?)) ORDER BY name, product_id LIMIT ?";
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                ps.setObject(index++, after.getSortKey());
+                ps.setObject(index++, after.getSortKey());
+                ps.setInt(index++, after.getId());
+            }
+            ps.setInt(index, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Product> list = new ArrayList<>();
+                while (rs.next()) list.add(map(rs));
+                return Page.of(list, limit, p -> new Page.Cursor(p.getName(), p.getProductId()));
+            }
+        }
+    }
+
+    /**
+     * Page of active products starting at a row offset, for jumps to a
+     * position whose cursor is not known. Prefer getProductsPage().
+     */
+    public Page<Product> getProductsPageAt(int offset, int limit) throws SQLException {
+        String sql = "SELECT * FROM products WHERE is_active = TRUE ORDER BY name, product_id LIMIT ? OFFSET ?";
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setInt(1, limit + 1);
+            ps.setInt(2, offset);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Product> list = new ArrayList<>();
+                while (rs.next()) list.add(map(rs));
+                return Page.of(list, limit, p -> new Page.Cursor(p.getName(), p.getProductId()));
+            }
+        }
+    }
+
+    /**
+     * Runs a ProductQuery as a single parameterized SELECT. The SQL text for
+     * each query shape is compiled once and reused.
+     *
+     * @param query Search specification
+     * @return Matching active products in the requested order
+     */
+    public List<Product> findProducts(ProductQuery query) throws SQLException {
+        String sql = COMPILED_QUERIES.computeIfAbsent(query.shape(), shape -> compile(query));
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            int index = 1;
+            if (query.getNameContains() != null) {
+                ps.setString(index++, "%" + escapeLike(query.getNameContains()) + "%");
+            }
+            if (query.getCategory() != null) {
+                ps.setString(index++, query.getCategory());
+            }
+            if (query.getSupplierId() != null) {
+                ps.setInt(index++, query.getSupplierId());
+            }
+            if (query.getMinQuantity() != null) {
+                ps.setInt(index++, query.getMinQuantity());
+            }
+            if (query.getMaxQuantity() != null) {
+                ps.setInt(index++, query.getMaxQuantity());
+            }
+            if (query.getLimit() > 0) {
+                ps.setInt(index, query.getLimit());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Product> list = new ArrayList<>();
+                while (rs.next()) list.add(map(rs));
+                return list;
+            }
+        }
+    }
+
+    // Parameter order here must match the binding order in findProducts()
+    private static String compile(ProductQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE is_active = TRUE");
+        if (query.getNameContains() != null) {
+            sql.append(" AND name LIKE ?");
+        }
+        if (query.getCategory() != null) {
+            sql.append(" AND category = ?");
+        }
+        if (query.getSupplierId() != null) {
+            sql.append(" AND supplier_id = ?");
+        }
+        if (query.getMinQuantity() != null) {
+            sql.append(" AND quantity >= ?");
+        }
+        if (query.getMaxQuantity() != null) {
+            sql.append(" AND quantity <= ?");
+        }
+        if (query.isLowStockOnly()) {
+            sql.append(" AND quantity <= min_stock");
+        }
+        String direction = query.isDescending() ? " DESC" : "";
+        sql.append(" ORDER BY ").append(query.getSortField().getColumn()).append(direction);
+        if (query.getSortField() != ProductQuery.SortField.ID) {
+            sql.append(", product_id").append(direction);
+        }
+        if (query.getLimit() > 0) {
+            sql.append(" LIMIT ?");
+        }
+        return sql.toString();
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     public Product getProductById(int productId) throws SQLException {
         String sql = "SELECT * FROM products WHERE product_id = ?";
         try (Connection c = DBManager.getConnection();
@@ -140,6 +283,8 @@ public class ProductDAO {
                         product.setProductId(rs.getInt(1));
                     }
                 }
+                ProductCatalogCache.getInstance().productSaved(product);
+                StockThresholdMonitor.getInstance().productAdded(product);
                 System.out.println("Product saved successfully with ID: " + product.getProductId());
             }
         }
@@ -149,6 +294,10 @@ public class ProductDAO {
         String sql = "UPDATE products SET name = ?, category = ?, supplier_id = ?, price = ?, quantity = ?, min_stock = ? WHERE product_id = ?";
         try (Connection c = DBManager.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
+            // Levels before the edit, to detect a low-stock crossing
+            StockLevel previous = getStockLevels(c, Collections.singletonList(product.getProductId()))
+                    .get(product.getProductId());
+
             ps.setString(1, product.getName());
             ps.setString(2, product.getCategory());
 
@@ -165,6 +314,11 @@ public class ProductDAO {
 
             int rowsUpdated = ps.executeUpdate();
             if (rowsUpdated > 0) {
+                ProductCatalogCache.getInstance().productUpdated(product);
+                if (previous != null && previous.active) {
+                    StockThresholdMonitor.getInstance().levelChanged(product.getProductId(),
+                            previous.quantity, previous.minStock, product.getQuantity(), product.getMinStock());
+                }
                 System.out.println("Product Updated successfully");
             } else {
                 throw new SQLException("Product not found with ID: " + product.getProductId());
@@ -179,6 +333,7 @@ public class ProductDAO {
             ps.setInt(1, productID);
             int rowsUpdated = ps.executeUpdate();
             if (rowsUpdated > 0) {
+                ProductCatalogCache.getInstance().productDeactivated(productID);
                 System.out.println("Product deactivated successfully");
             } else {
                 throw new SQLException("Product not found with ID: " + productID);
@@ -212,4 +367,228 @@ public class ProductDAO {
         }
         return 0;
     }
-}
\ No newline at end of file
+
+    /**
+     * Deducts stock for several products at once with a conditional update
+     * (quantity >= requested), so a line can never drive stock negative even
+     * when two tills sell the last units at the same time.
+     *
+     * All lines are sent as one JDBC batch and the resulting quantities are
+     * read back with a single query. Joins the caller's TransactionContext if
+     * one is active; otherwise runs in its own transaction. Either way, if
+     * any line is short nothing is deducted.
+     *
+     * @param quantities Quantity to deduct keyed by product ID (each must be > 0)
+     * @return One entry per product with the quantities before and after
+     * @throws InsufficientStockException If any product has less stock than requested
+     */
+    public List<StockDeduction> deductStock(Map<Integer, Integer> quantities) throws SQLException {
+        if (quantities.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        TransactionContext ownTransaction = TransactionContext.isActive() ? null : TransactionContext.begin();
+        try {
+            List<StockDeduction> deductions = applyDeductions(quantities);
+            if (ownTransaction != null) {
+                ownTransaction.commit();
+            }
+            return deductions;
+        } finally {
+            if (ownTransaction != null) {
+                ownTransaction.close();
+            }
+        }
+    }
+
+    private List<StockDeduction> applyDeductions(Map<Integer, Integer> quantities) throws SQLException {
+        String sql = "UPDATE products SET quantity = quantity - ? " +
+                "WHERE product_id = ? AND is_active = TRUE AND quantity >= ?";
+        List<Integer> productIds = new ArrayList<>(quantities.keySet());
+
+        try (Connection c = DBManager.getConnection()) {
+            int[] counts;
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int productId : productIds) {
+                    int quantity = quantities.get(productId);
+                    ps.setInt(1, quantity);
+                    ps.setInt(2, productId);
+                    ps.setInt(3, quantity);
+                    ps.addBatch();
+                }
+                counts = ps.executeBatch();
+            }
+
+            Map<Integer, StockLevel> current = getStockLevels(c, productIds);
+
+            // A line that matched no row had too little stock (or the product is inactive)
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    int productId = productIds.get(i);
+                    StockLevel level = current.get(productId);
+                    throw new InsufficientStockException(productId,
+                            level != null ? level.quantity : 0, quantities.get(productId));
+                }
+            }
+
+            List<StockDeduction> deductions = new ArrayList<>(productIds.size());
+            for (int productId : productIds) {
+                int quantity = quantities.get(productId);
+                StockLevel level = current.get(productId);
+                int newQuantity = level != null ? level.quantity : 0;
+                deductions.add(new StockDeduction(productId, quantity, newQuantity + quantity, newQuantity));
+                ProductCatalogCache.getInstance().quantitySet(productId, newQuantity);
+                if (level != null) {
+                    StockThresholdMonitor.getInstance().quantityChanged(productId,
+                            newQuantity + quantity, newQuantity, level.minStock);
+                }
+            }
+            return deductions;
+        }
+    }
+
+    /**
+     * Adds stock to several products at once (e.g. a supplier delivery).
+     * All lines go out as one JDBC batch, in product ID order so concurrent
+     * deliveries lock rows in the same order, and the new quantities are
+     * read back with a single query. Joins the caller's TransactionContext
+     * if one is active; otherwise runs in its own transaction.
+     *
+     * @param quantities Quantity to add keyed by product ID (each must be > 0)
+     * @return One entry per product with the quantities before and after
+     * @throws SQLException If a product does not exist (nothing is added)
+     */
+    public List<StockAddition> addStock(Map<Integer, Integer> quantities) throws SQLException {
+        if (quantities.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        TransactionContext ownTransaction = TransactionContext.isActive() ? null : TransactionContext.begin();
+        try {
+            List<StockAddition> additions = applyAdditions(quantities);
+            if (ownTransaction != null) {
+                ownTransaction.commit();
+            }
+            return additions;
+        } finally {
+            if (ownTransaction != null) {
+                ownTransaction.close();
+            }
+        }
+    }
+
+    private List<StockAddition> applyAdditions(Map<Integer, Integer> quantities) throws SQLException {
+        String sql = "UPDATE products SET quantity = quantity + ? WHERE product_id = ?";
+        List<Integer> productIds = new ArrayList<>(quantities.keySet());
+        Collections.sort(productIds);
+
+        try (Connection c = DBManager.getConnection()) {
+            int[] counts;
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int productId : productIds) {
+                    ps.setInt(1, quantities.get(productId));
+                    ps.setInt(2, productId);
+                    ps.addBatch();
+                }
+                counts = ps.executeBatch();
+            }
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    throw new SQLException("Product not found with ID: " + productIds.get(i));
+                }
+            }
+
+            Map<Integer, StockLevel> current = getStockLevels(c, productIds);
+            List<StockAddition> additions = new ArrayList<>(productIds.size());
+            for (int productId : productIds) {
+                int quantity = quantities.get(productId);
+                StockLevel level = current.get(productId);
+                int newQuantity = level != null ? level.quantity : quantity;
+                additions.add(new StockAddition(productId, quantity, newQuantity - quantity, newQuantity));
+                ProductCatalogCache.getInstance().quantitySet(productId, newQuantity);
+            }
+            return additions;
+        }
+    }
+
+    // IN lists are padded to StatementShapes sizes so the statement cache sees a few shapes only
+    private Map<Integer, StockLevel> getStockLevels(Connection c, List<Integer> productIds) throws SQLException {
+        Map<Integer, StockLevel> levels = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += IN_LIST_SIZE) {
+            int to = Math.min(productIds.size(), from + IN_LIST_SIZE);
+            int size = StatementShapes.paddedSize(to - from, IN_LIST_SIZE);
+            String sql = "SELECT product_id, quantity, min_stock, is_active FROM products WHERE product_id IN (" +
+                    StatementShapes.repeat("?", size) + ")";
+
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int i = 0; i < size; i++) {
+                    ps.setInt(i + 1, productIds.get(Math.min(from + i, to - 1)));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        levels.put(rs.getInt("product_id"), new StockLevel(
+                                rs.getInt("quantity"), rs.getInt("min_stock"), rs.getBoolean("is_active")));
+                    }
+                }
+            }
+        }
+        return levels;
+    }
+
+    // Current quantity and threshold of one product
+    private static class StockLevel {
+        final int quantity;
+        final int minStock;
+        final boolean active;
+
+        StockLevel(int quantity, int minStock, boolean active) {
+            this.quantity = quantity;
+            this.minStock = minStock;
+            this.active = active;
+        }
+    }
+
+    /**
+     * Outcome of deducting one product in deductStock().
+     */
+    public static class StockDeduction {
+        private final int productId;
+        private final int quantity;
+        private final int previousQuantity;
+        private final int newQuantity;
+
+        public StockDeduction(int productId, int quantity, int previousQuantity, int newQuantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.previousQuantity = previousQuantity;
+            this.newQuantity = newQuantity;
+        }
+
+        public int getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+        public int getPreviousQuantity() { return previousQuantity; }
+        public int getNewQuantity() { return newQuantity; }
+    }
+
+    /**
+     * Outcome of adding stock to one product in addStock().
+     */
+    public static class StockAddition {
+        private final int productId;
+        private final int quantity;
+        private final int previousQuantity;
+        private final int newQuantity;
+
+        public StockAddition(int productId, int quantity, int previousQuantity, int newQuantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.previousQuantity = previousQuantity;
+            this.newQuantity = newQuantity;
+        }
+
+        public int getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+        public int getPreviousQuantity() { return previousQuantity; }
+        public int getNewQuantity() { return newQuantity; }
+    }
+}
@@ -1,5 +1,6 @@
 package product;
 
+import database.Page;
 import enums.Category;
 import login.User;
 import login.UserRole;
@@ -32,6 +33,8 @@ public class ProductManagementForm extends JFrame {
     private JButton editButton;
     private JButton deactivateButton;
     private JButton refreshButton;
+    private JButton loadMoreButton;
+    private Page.Cursor nextCursor;
     private DefaultTableModel tableModel;
     private ProductDAO productDAO;
     private ProductManager productManager;
@@ -112,6 +115,10 @@ public class ProductManagementForm extends JFrame {
         refreshButton = new JButton("Refresh");
         refreshButton.addActionListener(e -> loadProducts());
         
+        loadMoreButton = new JButton("Load More");
+        loadMoreButton.setEnabled(false);
+        loadMoreButton.addActionListener(e -> loadProductsPage(nextCursor));
+        
         statusLabel = new JLabel("Ready");
     }
     
@@ -154,6 +161,7 @@ public class ProductManagementForm extends JFrame {
         // Status panel with padding
         JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         statusPanel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        statusPanel.add(loadMoreButton);
         statusPanel.add(statusLabel);
         add(statusPanel, BorderLayout.SOUTH);
 
@@ -162,21 +170,31 @@ public class ProductManagementForm extends JFrame {
     }
     
     /**
-     * Load all products into the table (SRS 1.1, 1.4)
+     * Load the first page of products into the table (SRS 1.1, 1.4)
      */
     private void loadProducts() {
+        tableModel.setRowCount(0);
+        loadProductsPage(null);
+    }
+    
+    /**
+     * Append the page of products after the cursor (null = first page)
+     */
+    private void loadProductsPage(Page.Cursor after) {
         try {
             searchStartTime = System.currentTimeMillis();
             statusLabel.setText("Loading products...");
-            tableModel.setRowCount(0);
             
-            List<Product> products = productDAO.getAllProducts();
-            for (Product p : products) {
+            Page<Product> page = productDAO.getProductsPage(after, Page.DEFAULT_SIZE);
+            for (Product p : page.getItems()) {
                 addProductRow(p);
             }
+            nextCursor = page.getNextCursor();
+            loadMoreButton.setEnabled(page.hasNext());
             
             long elapsed = System.currentTimeMillis() - searchStartTime;
-            statusLabel.setText("Loaded " + products.size() + " products in " + elapsed + "ms");
+            statusLabel.setText("Showing " + tableModel.getRowCount() + " products" +
+                (page.hasNext() ? " (more available)" : "") + " - loaded in " + elapsed + "ms");
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Error loading products: " + e.getMessage(), 
                 "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -201,6 +219,8 @@ public class ProductManagementForm extends JFrame {
             searchStartTime = System.currentTimeMillis();
             statusLabel.setText("Searching...");
             tableModel.setRowCount(0);
+            nextCursor = null;
+            loadMoreButton.setEnabled(false);
             
             List<Product> products;
             if (criteria.isEmpty()) {
@@ -5,17 +5,15 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import stock.StockMovement;
-import stock.StockMovementDAO;
+import stock.StockMovementJournal;
 
 public class ProductManager {
     private ProductService productService;
-    private StockMovementDAO stockMovementDAO;
     private Connection connection;
     
     public ProductManager(Connection connection) {
         this.connection = connection;
         this.productService = new ProductService(connection);
-        this.stockMovementDAO = new StockMovementDAO(connection);
     }
     
     /**
@@ -84,18 +82,16 @@ public class ProductManager {
     private void logStockMovement(int productId, String movementType, int quantityChanged,
                                   int previousQuantity, int newQuantity, String reason) {
         try {
-            if (stockMovementDAO != null) {
-                StockMovement movement = new StockMovement();
-                movement.setProductId(productId);
-                movement.setMovementType(movementType);
-                movement.setQuantityChanged(quantityChanged);
-                movement.setPreviousQuantity(previousQuantity);
-                movement.setNewQuantity(newQuantity);
-                movement.setReason(reason);
-                movement.setUserId(0); // System user
-                
-                stockMovementDAO.saveStockMovement(movement);
-            }
+            StockMovement movement = new StockMovement();
+            movement.setProductId(productId);
+            movement.setMovementType(movementType);
+            movement.setQuantityChanged(quantityChanged);
+            movement.setPreviousQuantity(previousQuantity);
+            movement.setNewQuantity(newQuantity);
+            movement.setReason(reason);
+            movement.setUserId(0); // System user
+            
+            StockMovementJournal.getInstance().record(movement);
         } catch (Exception e) {
             System.err.println("Warning: Failed to log stock movement: " + e.getMessage());
         }
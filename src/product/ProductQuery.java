@@ -0,0 +1,135 @@
+package product;
+
+/**
+ * Product search specification - SRS 1.4 Search and Filter
+ *
+ * Describes a filtered, sorted product lookup that ProductDAO.findProducts()
+ * compiles into one parameterized SQL statement, so narrow searches are
+ * answered by MySQL (using idx_category / idx_quantity) instead of loading
+ * every product and filtering in Java.
+ *
+ * Usage:
+ *   ProductQuery query = ProductQuery.create()
+ *       .category("SNACKS")
+ *       .stockBetween(0, 10)
+ *       .sortBy(ProductQuery.SortField.QUANTITY, false)
+ *       .limit(50);
+ *   List<Product> products = productDAO.findProducts(query);
+ *
+ * Unset criteria are simply left out of the WHERE clause.
+ */
+public class ProductQuery {
+
+    public enum SortField {
+        NAME("name"),
+        CATEGORY("category"),
+        PRICE("price"),
+        QUANTITY("quantity"),
+        ID("product_id");
+
+        private final String column;
+
+        SortField(String column) {
+            this.column = column;
+        }
+
+        String getColumn() {
+            return column;
+        }
+    }
+
+    private String nameContains;
+    private String category;
+    private Integer supplierId;
+    private Integer minQuantity;
+    private Integer maxQuantity;
+    private boolean lowStockOnly = false;
+    private SortField sortField = SortField.NAME;
+    private boolean descending = false;
+    private int limit = 0;
+
+    private ProductQuery() {}
+
+    public static ProductQuery create() {
+        return new ProductQuery();
+    }
+
+    public ProductQuery nameContains(String text) {
+        this.nameContains = blankToNull(text);
+        return this;
+    }
+
+    public ProductQuery category(String category) {
+        this.category = blankToNull(category);
+        return this;
+    }
+
+    public ProductQuery supplier(int supplierId) {
+        this.supplierId = supplierId;
+        return this;
+    }
+
+    public ProductQuery minStock(int minQuantity) {
+        this.minQuantity = minQuantity;
+        return this;
+    }
+
+    public ProductQuery maxStock(int maxQuantity) {
+        this.maxQuantity = maxQuantity;
+        return this;
+    }
+
+    public ProductQuery stockBetween(int minQuantity, int maxQuantity) {
+        return minStock(minQuantity).maxStock(maxQuantity);
+    }
+
+    // Only products at or below their minimum stock level
+    public ProductQuery lowStockOnly() {
+        this.lowStockOnly = true;
+        return this;
+    }
+
+    public ProductQuery sortBy(SortField field, boolean descending) {
+        this.sortField = field;
+        this.descending = descending;
+        return this;
+    }
+
+    // Maximum number of rows (0 = no limit)
+    public ProductQuery limit(int limit) {
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    public String getNameContains() { return nameContains; }
+    public String getCategory() { return category; }
+    public Integer getSupplierId() { return supplierId; }
+    public Integer getMinQuantity() { return minQuantity; }
+    public Integer getMaxQuantity() { return maxQuantity; }
+    public boolean isLowStockOnly() { return lowStockOnly; }
+    public SortField getSortField() { return sortField; }
+    public boolean isDescending() { return descending; }
+    public int getLimit() { return limit; }
+
+    /**
+     * Identifies which clauses the compiled SQL needs. Queries with the same
+     * shape share one SQL string (and therefore one cached PreparedStatement).
+     */
+    String shape() {
+        StringBuilder shape = new StringBuilder(12);
+        shape.append(nameContains != null ? 'N' : '-')
+             .append(category != null ? 'C' : '-')
+             .append(supplierId != null ? 'S' : '-')
+             .append(minQuantity != null ? 'Q' : '-')
+             .append(maxQuantity != null ? 'q' : '-')
+             .append(lowStockOnly ? 'L' : '-')
+             .append(limit > 0 ? 'T' : '-')
+             .append(':').append(sortField.name())
+             .append(descending ? ":D" : ":A");
+        return shape.toString();
+    }
+
+    private static String blankToNull(String text) {
+        return text == null || text.trim().isEmpty() ? null : text.trim();
+    }
+}
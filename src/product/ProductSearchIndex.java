@@ -0,0 +1,301 @@
+package product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over the product catalog - SRS 1.4 Search, SRS 3.1 Performance
+ *
+ * Every active product's name, category and ID are broken into lower-case
+ * three-character grams. Each gram maps to a sorted int[] posting list of
+ * the product IDs that contain it. A substring query is answered by
+ * intersecting the postings of the query's own trigrams (shortest list
+ * first) and then verifying the few remaining candidates with contains(),
+ * instead of scanning every product on every keystroke.
+ *
+ * Queries shorter than three characters have no trigrams and fall back to
+ * a scan of the indexed text.
+ *
+ * The index follows ProductCatalogCache as a listener, so saves, edits,
+ * deactivations and catalog reloads are reflected incrementally.
+ */
+public class ProductSearchIndex implements ProductCatalogCache.Listener {
+    private static ProductSearchIndex instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<Integer, IndexedProduct> documents = new HashMap<>();
+
+    private ProductSearchIndex() {}
+
+    public static synchronized ProductSearchIndex getInstance() throws SQLException {
+        if (instance == null) {
+            ProductSearchIndex index = new ProductSearchIndex();
+            ProductCatalogCache.getInstance().addListener(index);
+            instance = index;
+        }
+        return instance;
+    }
+
+    /**
+     * IDs of products whose name, category or ID contains the query
+     * (case-insensitive).
+     */
+    public int[] search(String query) {
+        return find(query, false);
+    }
+
+    /**
+     * IDs of products whose name contains the query (case-insensitive).
+     */
+    public int[] searchNames(String query) {
+        return find(query, true);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- ProductCatalogCache.Listener ----
+
+    @Override
+    public void catalogReloaded(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            // Ascending IDs turn every posting insert into an append
+            List<Product> ordered = new ArrayList<>(products);
+            ordered.sort((a, b) -> Integer.compare(a.getProductId(), b.getProductId()));
+            for (Product product : ordered) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void productChanged(Product previous, Product current) {
+        lock.writeLock().lock();
+        try {
+            if (previous != null && current != null
+                    && previous.getProductId() == current.getProductId()
+                    && sameText(previous, current)) {
+                return; // Quantity or price change only
+            }
+            if (previous != null) {
+                removeDocument(previous.getProductId());
+            }
+            if (current != null) {
+                removeDocument(current.getProductId());
+                addDocument(current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- Internals ----
+
+    private int[] find(String query, boolean namesOnly) {
+        if (query == null || query.trim().isEmpty()) {
+            return new int[0];
+        }
+        String term = query.trim().toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(term);
+            int[] matches = new int[candidates.length];
+            int count = 0;
+            for (int productId : candidates) {
+                IndexedProduct doc = documents.get(productId);
+                if (doc != null && doc.matches(term, namesOnly)) {
+                    matches[count++] = productId;
+                }
+            }
+            return count == matches.length ? matches : Arrays.copyOf(matches, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the read lock
+    private int[] candidates(String term) {
+        if (term.length() < 3) {
+            int[] all = new int[documents.size()];
+            int i = 0;
+            for (int productId : documents.keySet()) {
+                all[i++] = productId;
+            }
+            return all;
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            PostingList list = postings.get(trigram(term, i));
+            if (list == null) {
+                return new int[0]; // A trigram no product contains
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = lists.get(i).retainAll(result);
+        }
+        return result;
+    }
+
+    private void addDocument(Product product) {
+        IndexedProduct doc = new IndexedProduct(product);
+        documents.put(doc.productId, doc);
+        for (long gram : doc.trigrams()) {
+            postings.computeIfAbsent(gram, g -> new PostingList()).add(doc.productId);
+        }
+    }
+
+    private void removeDocument(int productId) {
+        IndexedProduct doc = documents.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        for (long gram : doc.trigrams()) {
+            PostingList list = postings.get(gram);
+            if (list != null) {
+                list.remove(productId);
+                if (list.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static boolean sameText(Product a, Product b) {
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getCategory(), b.getCategory());
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lower-cased searchable fields of one product.
+     */
+    private static class IndexedProduct {
+        final int productId;
+        final String name;
+        final String category;
+        final String id;
+
+        IndexedProduct(Product product) {
+            this.productId = product.getProductId();
+            this.name = lower(product.getName());
+            this.category = lower(product.getCategory());
+            this.id = String.valueOf(product.getProductId());
+        }
+
+        boolean matches(String term, boolean namesOnly) {
+            if (name.contains(term)) {
+                return true;
+            }
+            return !namesOnly && (category.contains(term) || id.contains(term));
+        }
+
+        // Distinct trigrams of all fields (grams never span two fields)
+        long[] trigrams() {
+            Set<Long> grams = new HashSet<>();
+            for (String field : new String[]{name, category, id}) {
+                for (int i = 0; i + 3 <= field.length(); i++) {
+                    grams.add(trigram(field, i));
+                }
+            }
+            long[] result = new long[grams.size()];
+            int i = 0;
+            for (long gram : grams) {
+                result[i++] = gram;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Sorted, growable array of product IDs.
+     */
+    private static class PostingList {
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int productId) {
+            int pos = Arrays.binarySearch(ids, 0, size, productId);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = productId;
+            size++;
+        }
+
+        void remove(int productId) {
+            int pos = Arrays.binarySearch(ids, 0, size, productId);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        // Sorted intersection of this list with a sorted candidate array
+        int[] retainAll(int[] candidates) {
+            int[] out = new int[Math.min(size, candidates.length)];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < candidates.length) {
+                if (ids[i] == candidates[j]) {
+                    out[n++] = ids[i];
+                    i++;
+                    j++;
+                } else if (ids[i] < candidates[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+    }
+}
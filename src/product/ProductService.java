@@ -1,5 +1,7 @@
 package product;
 
+import database.Page;
+
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -15,7 +17,8 @@ public class ProductService {
     }
 
     public Product getProductById(int productId) throws SQLException {
-        return productDAO.getProductById(productId);
+        Product cached = ProductCatalogCache.getInstance().getProduct(productId);
+        return cached != null ? cached : productDAO.getProductById(productId);
     }
 
     public int getTotalProductCount() {
@@ -47,14 +50,24 @@ public class ProductService {
         return getLowStockCount();
     }
 
+    // Served from the shared catalog cache; writes through ProductDAO keep it current
     public java.util.List<Product> getAllActiveProducts() {
         try {
-            return productDAO.getAllProducts();
+            return ProductCatalogCache.getInstance().getAllActiveProducts();
         } catch (Exception e) {
             throw new RuntimeException("Unable to get active products: " + e.getMessage(), e);
         }
     }
 
+    // Paged access for lazily loaded product tables
+    public Page<Product> getProductsPage(Page.Cursor after, int limit) throws SQLException {
+        return productDAO.getProductsPage(after, limit);
+    }
+
+    public Page<Product> getProductsPageAt(int offset, int limit) throws SQLException {
+        return productDAO.getProductsPageAt(offset, limit);
+    }
+
     // Additional methods that might be needed
     public void saveProduct(Product product) throws SQLException {
         productDAO.saveProduct(product);
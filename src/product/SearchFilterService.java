@@ -64,16 +64,7 @@ public class SearchFilterService {
             return new ArrayList<>();
         }
         
-        List<Product> allProducts = productDAO.getAllProducts();
-        List<Product> filtered = new ArrayList<>();
-        
-        for (Product product : allProducts) {
-            if (product.getSupplierId() != null && product.getSupplierId() == supplierId) {
-                filtered.add(product);
-            }
-        }
-        
-        return filtered;
+        return productDAO.findProducts(ProductQuery.create().supplier(supplierId));
     }
     
     /**
@@ -89,16 +80,7 @@ public class SearchFilterService {
             return new ArrayList<>();
         }
         
-        List<Product> allProducts = productDAO.getAllProducts();
-        List<Product> filtered = new ArrayList<>();
-        
-        for (Product product : allProducts) {
-            if (product.getQuantity() >= minStock && product.getQuantity() <= maxStock) {
-                filtered.add(product);
-            }
-        }
-        
-        return filtered;
+        return productDAO.findProducts(ProductQuery.create().stockBetween(minStock, maxStock));
     }
     
     /**
@@ -123,29 +105,16 @@ public class SearchFilterService {
      */
     public List<Product> advancedSearch(String name, String category, int minStock, int maxStock) 
             throws SQLException {
-        List<Product> results = productDAO.getAllProducts();
+        ProductQuery query = ProductQuery.create()
+            .nameContains(name)
+            .category(category);
         
-        // Filter by name if provided
-        if (name != null && !name.trim().isEmpty()) {
-            String searchTerm = name.trim().toLowerCase();
-            results = filterList(results, product -> 
-                product.getName().toLowerCase().contains(searchTerm));
-        }
-        
-        // Filter by category if provided
-        if (category != null && !category.trim().isEmpty()) {
-            String categoryFilter = category.trim();
-            results = filterList(results, product -> 
-                product.getCategory().equalsIgnoreCase(categoryFilter));
-        }
-        
-        // Filter by stock level if provided
+        // Stock range only applies when both bounds are valid
         if (minStock >= 0 && maxStock >= 0 && minStock <= maxStock) {
-            results = filterList(results, product -> 
-                product.getQuantity() >= minStock && product.getQuantity() <= maxStock);
+            query.stockBetween(minStock, maxStock);
         }
         
-        return results;
+        return productDAO.findProducts(query);
     }
     
     /**
@@ -160,30 +129,9 @@ public class SearchFilterService {
             return new ArrayList<>();
         }
         
-        String searchTerm = query.trim().toLowerCase();
-        List<Product> allProducts = productDAO.getAllProducts();
-        List<Product> results = new ArrayList<>();
-        
-        for (Product product : allProducts) {
-            // Search in name
-            if (product.getName().toLowerCase().contains(searchTerm)) {
-                results.add(product);
-                continue;
-            }
-            
-            // Search in category
-            if (product.getCategory().toLowerCase().contains(searchTerm)) {
-                results.add(product);
-                continue;
-            }
-            
-            // Search in product ID
-            if (String.valueOf(product.getProductId()).contains(searchTerm)) {
-                results.add(product);
-            }
-        }
-        
-        return results;
+        // Trigram index lookup over name, category and product ID
+        int[] matches = ProductSearchIndex.getInstance().search(query);
+        return ProductCatalogCache.getInstance().getProducts(matches);
     }
     
     /**
@@ -192,27 +140,6 @@ public class SearchFilterService {
      * @return List of all active products
      */
     public List<Product> getAllActiveProducts() throws SQLException {
-        return productDAO.getAllProducts();
-    }
-    
-    /**
-     * Helper method to filter a list based on a predicate
-     */
-    private List<Product> filterList(List<Product> products, ProductPredicate predicate) {
-        List<Product> filtered = new ArrayList<>();
-        for (Product product : products) {
-            if (predicate.test(product)) {
-                filtered.add(product);
-            }
-        }
-        return filtered;
-    }
-    
-    /**
-     * Functional interface for filtering products
-     */
-    @FunctionalInterface
-    private interface ProductPredicate {
-        boolean test(Product product);
+        return ProductCatalogCache.getInstance().getAllActiveProducts();
     }
 }
@@ -0,0 +1,119 @@
+package product;
+
+import database.TransactionContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-stock threshold detection - SRS 1.2 Low Stock Alerts
+ *
+ * ProductDAO reports every quantity (or minimum stock) change here, with the
+ * levels before and after. When a product goes from above its min_stock to
+ * at or below it, a LowStockEvent is published to the registered listeners
+ * (see AlertManager), so alerts are raised where stock actually changes
+ * instead of by scanning every product.
+ *
+ * Events are published only after the enclosing transaction commits; a
+ * rolled-back sale never raises an alert. Listeners run on the thread that
+ * made the change.
+ */
+public class StockThresholdMonitor {
+    private static StockThresholdMonitor instance;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder eventsPublished = new LongAdder();
+
+    public interface Listener {
+        void stockFellBelowMinimum(LowStockEvent event);
+    }
+
+    private StockThresholdMonitor() {}
+
+    public static synchronized StockThresholdMonitor getInstance() {
+        if (instance == null) {
+            instance = new StockThresholdMonitor();
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public long getEventsPublished() {
+        return eventsPublished.sum();
+    }
+
+    // ---- Called by ProductDAO ----
+
+    void levelChanged(int productId, int previousQuantity, int previousMinStock,
+                      int newQuantity, int newMinStock) {
+        boolean wasLow = previousQuantity <= previousMinStock;
+        boolean isLow = newQuantity <= newMinStock;
+        if (!wasLow && isLow) {
+            publish(new LowStockEvent(productId, previousQuantity, newQuantity, newMinStock));
+        }
+    }
+
+    void quantityChanged(int productId, int previousQuantity, int newQuantity, int minStock) {
+        levelChanged(productId, previousQuantity, minStock, newQuantity, minStock);
+    }
+
+    // A product created at or below its minimum counts as a crossing
+    void productAdded(Product product) {
+        if (product.isActive() && product.getQuantity() <= product.getMinStock()) {
+            publish(new LowStockEvent(product.getProductId(), product.getQuantity(),
+                    product.getQuantity(), product.getMinStock()));
+        }
+    }
+
+    private void publish(LowStockEvent event) {
+        TransactionContext.afterCommit(() -> {
+            eventsPublished.increment();
+            for (Listener listener : listeners) {
+                try {
+                    listener.stockFellBelowMinimum(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Error handling low stock event: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * A product's stock reached its minimum level.
+     */
+    public static class LowStockEvent {
+        private final int productId;
+        private final int previousQuantity;
+        private final int quantity;
+        private final int minStock;
+        private final LocalDateTime detectedAt = LocalDateTime.now();
+
+        public LowStockEvent(int productId, int previousQuantity, int quantity, int minStock) {
+            this.productId = productId;
+            this.previousQuantity = previousQuantity;
+            this.quantity = quantity;
+            this.minStock = minStock;
+        }
+
+        public int getProductId() { return productId; }
+        public int getPreviousQuantity() { return previousQuantity; }
+        public int getQuantity() { return quantity; }
+        public int getMinStock() { return minStock; }
+        public LocalDateTime getDetectedAt() { return detectedAt; }
+
+        @Override
+        public String toString() {
+            return "LowStockEvent[product=" + productId + ", " + previousQuantity + " -> " +
+                    quantity + ", min=" + minStock + "]";
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package report;
 
+import database.TimeRange;
+
 import java.time.LocalDate;
 import java.sql.*;
 
@@ -108,12 +110,12 @@ public class ReportDAO {
     public List<Report> getReportsByDateRange(LocalDate startDate, LocalDate endDate) throws SQLException {
         if (connection == null) return new ArrayList<>();
         List<Report> reports = new ArrayList<>();
-        String sql = "SELECT * FROM reports WHERE DATE(generated_date) BETWEEN ? AND ? " +
+        TimeRange range = TimeRange.ofDays(startDate, endDate);
+        String sql = "SELECT * FROM reports WHERE " + range.where("generated_date") + " " +
                 "ORDER BY generated_date DESC";
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDate(1, Date.valueOf(startDate));
-            pstmt.setDate(2, Date.valueOf(endDate));
+            range.bind(pstmt, 1);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -263,6 +265,7 @@ public class ReportDAO {
 
         StringBuilder data = new StringBuilder();
 
+        TimeRange range = TimeRange.ofDays(startDate, endDate);
         String sql = "SELECT " +
             "DATE(s.sale_date) as sale_day, " +
             "COUNT(*) as transactions, " +
@@ -270,7 +273,7 @@ public class ReportDAO {
             "SUM(s.total_amount) as revenue, " +
             "AVG(s.total_amount) as avg_sale " +
             "FROM sales s " +
-            "WHERE DATE(s.sale_date) BETWEEN ? AND ? " +
+            "WHERE " + range.where("s.sale_date") + " " +
             "GROUP BY DATE(s.sale_date) " +
             "ORDER BY sale_day DESC";
 
@@ -279,14 +282,13 @@ public class ReportDAO {
             "SUM(s.total_amount) as revenue " +
             "FROM sales s " +
             "JOIN products p ON s.product_id = p.product_id " +
-            "WHERE DATE(s.sale_date) BETWEEN ? AND ? " +
+            "WHERE " + range.where("s.sale_date") + " " +
             "GROUP BY p.product_id, p.name " +
             "ORDER BY total_sold DESC " +
             "LIMIT 10";
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDate(1, Date.valueOf(startDate));
-            pstmt.setDate(2, Date.valueOf(endDate));
+            range.bind(pstmt, 1);
 
             data.append("SALES REPORT\n");
             data.append("============\n");
@@ -327,8 +329,7 @@ public class ReportDAO {
 
             // Get top products
             try (PreparedStatement topStmt = connection.prepareStatement(topProductsSQL)) {
-                topStmt.setDate(1, Date.valueOf(startDate));
-                topStmt.setDate(2, Date.valueOf(endDate));
+                range.bind(topStmt, 1);
 
                 data.append("\nTOP SELLING PRODUCTS\n");
                 data.append("--------------------\n");
@@ -430,6 +431,7 @@ public class ReportDAO {
 
         StringBuilder data = new StringBuilder();
 
+        TimeRange range = TimeRange.ofDays(startDate, endDate);
         String sql = "SELECT sm.movement_id, p.name as product_name, " +
                 "sm.movement_type, sm.quantity_changed, " +
                 "sm.previous_quantity, sm.new_quantity, " +
@@ -437,12 +439,11 @@ public class ReportDAO {
                 "FROM stock_movements sm " +
                 "JOIN products p ON sm.product_id = p.product_id " +
                 "LEFT JOIN users u ON sm.user_id = u.user_id " +
-                "WHERE DATE(sm.timestamp) BETWEEN ? AND ? " +
+                "WHERE " + range.where("sm.timestamp") + " " +
                 "ORDER BY sm.timestamp DESC";
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDate(1, Date.valueOf(startDate));
-            pstmt.setDate(2, Date.valueOf(endDate));
+            range.bind(pstmt, 1);
 
             data.append("TRANSACTION HISTORY REPORT\n");
             data.append("==========================\n");
@@ -76,6 +76,25 @@ CREATE TABLE sales (
     INDEX idx_user (user_id)
 );
 
+-- Receipt Sequences table (per-day receipt counter, leased to terminals in blocks)
+CREATE TABLE receipt_sequences (
+    sequence_day DATE PRIMARY KEY,
+    next_value BIGINT NOT NULL COMMENT 'Highest receipt number leased so far for the day'
+);
+
+-- Daily Sales Rollup table (completed sales per day, kept current in each sale's transaction)
+CREATE TABLE daily_sales_rollup (
+    sale_day DATE PRIMARY KEY,
+    sale_count INT NOT NULL DEFAULT 0,
+    items_sold INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(12,2) NOT NULL DEFAULT 0,
+    cash_total DECIMAL(12,2) NOT NULL DEFAULT 0,
+    card_total DECIMAL(12,2) NOT NULL DEFAULT 0,
+    mobile_total DECIMAL(12,2) NOT NULL DEFAULT 0,
+    other_total DECIMAL(12,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
 -- Sale Items table (child of sales)
 CREATE TABLE sale_items (
     sale_item_id INT AUTO_INCREMENT PRIMARY KEY,
@@ -108,9 +127,36 @@ CREATE TABLE stock_movements (
     FOREIGN KEY (product_id) REFERENCES products(product_id),
     FOREIGN KEY (user_id) REFERENCES users(user_id),
     INDEX idx_product (product_id),
-    INDEX idx_movement_type (movement_type),
+    -- (type/user, timestamp) + implicit movement_id match the keyset order of filtered history pages
+    INDEX idx_movement_type (movement_type, timestamp),
     INDEX idx_timestamp (timestamp),
-    INDEX idx_user (user_id)
+    INDEX idx_user (user_id, timestamp)
+);
+
+-- Stock Snapshots table (daily per-product quantities for point-in-time queries)
+CREATE TABLE stock_snapshots (
+    snapshot_date DATE NOT NULL,
+    product_id INT NOT NULL,
+    quantity INT NOT NULL,
+    taken_at TIMESTAMP NOT NULL COMMENT 'Movements after this instant are not included in quantity',
+    
+    PRIMARY KEY (snapshot_date, product_id),
+    FOREIGN KEY (product_id) REFERENCES products(product_id),
+    INDEX idx_snapshot_taken (taken_at),
+    INDEX idx_snapshot_product (product_id, taken_at)
+);
+
+-- Demand Forecasts table (smoothed daily SALE demand per product, updated incrementally)
+CREATE TABLE demand_forecasts (
+    product_id INT PRIMARY KEY,
+    smoothed_daily DOUBLE NOT NULL DEFAULT 0 COMMENT 'Exponentially smoothed units sold per day',
+    smoothed_variance DOUBLE NOT NULL DEFAULT 0,
+    observed_days INT NOT NULL DEFAULT 0 COMMENT 'Completed days folded into the average',
+    open_day DATE COMMENT 'Day still being accumulated',
+    open_day_units INT NOT NULL DEFAULT 0,
+    last_movement_id INT NOT NULL DEFAULT 0 COMMENT 'Highest SALE movement applied when saved',
+    
+    FOREIGN KEY (product_id) REFERENCES products(product_id)
 );
 
 -- Reports table
@@ -247,6 +293,18 @@ INSERT INTO sale_items (sale_id, product_id, product_name, quantity, unit_price,
 (5, 18, 'Cookies', 1, 1.50, 1.50),
 (5, 25, 'Napkins', 2, 1.00, 2.00);
 
+-- 5b. Roll up the sample sales (the application keeps this current from now on)
+INSERT INTO daily_sales_rollup (sale_day, sale_count, items_sold, revenue, cash_total, card_total, mobile_total, other_total)
+SELECT DATE(s.sale_datetime), COUNT(*), COALESCE(SUM(i.units), 0), SUM(s.total_amount),
+       SUM(IF(s.payment_method = 'CASH', s.total_amount, 0)),
+       SUM(IF(s.payment_method = 'CARD', s.total_amount, 0)),
+       SUM(IF(s.payment_method = 'MOBILE', s.total_amount, 0)),
+       SUM(IF(s.payment_method = 'OTHER', s.total_amount, 0))
+FROM sales s
+LEFT JOIN (SELECT sale_id, SUM(quantity) AS units FROM sale_items GROUP BY sale_id) i ON i.sale_id = s.sale_id
+WHERE s.is_completed = true
+GROUP BY DATE(s.sale_datetime);
+
 -- 6. Insert Stock Movements SIXTH (Now products exist!)
 INSERT INTO stock_movements (product_id, related_id, movement_type, quantity_changed, previous_quantity, new_quantity, reason, user_id, timestamp) VALUES
 -- Initial stock for food items
@@ -417,43 +475,14 @@ DELIMITER ;
 -- CREATE TRIGGERS
 -- =============================================
 
--- Trigger to update product quantity after sale item insertion
-DELIMITER //
-CREATE TRIGGER trg_after_sale_item_insert
-AFTER INSERT ON sale_items
-FOR EACH ROW
-BEGIN
-    -- Update product quantity
-    UPDATE products 
-    SET quantity = quantity - NEW.quantity
-    WHERE product_id = NEW.product_id;
-    
-    -- Record stock movement
-    INSERT INTO stock_movements (product_id, related_id, movement_type,
-                                quantity_changed, previous_quantity, new_quantity,
-                                reason, user_id)
-    SELECT NEW.product_id, NEW.sale_id, 'SALE',
-           -NEW.quantity, p.quantity, p.quantity - NEW.quantity,
-           CONCAT('Sale #', s.receipt_number), s.user_id
-    FROM products p
-    JOIN sales s ON s.sale_id = NEW.sale_id
-    WHERE p.product_id = NEW.product_id;
-END //
-DELIMITER ;
+-- Sale stock is deducted by the application in the sale's transaction
+-- (ProductDAO.deductStock, a conditional UPDATE ... WHERE quantity >= ?) and
+-- its SALE movements are written by the stock movement journal, so there is
+-- no trigger on sale_items inserts.
 
--- Trigger to check for low stock after product update
-DELIMITER //
-CREATE TRIGGER trg_after_product_update
-AFTER UPDATE ON products
-FOR EACH ROW
-BEGIN
-    -- Check if stock fell below minimum and trigger alert
-    IF NEW.quantity <= NEW.min_stock AND OLD.quantity > NEW.min_stock THEN
-        INSERT INTO low_stock_alerts (product_id, current_quantity, min_stock_level, alert_date)
-        VALUES (NEW.product_id, NEW.quantity, NEW.min_stock, NOW());
-    END IF;
-END //
-DELIMITER ;
+-- Low stock alerts are raised by the application when a quantity change
+-- crosses min_stock (product.StockThresholdMonitor / alert.AlertManager),
+-- so there is no trigger on products updates.
 
 -- =============================================
 -- CREATE INDEXES FOR PERFORMANCE
@@ -479,8 +508,16 @@ SELECT 'Sales', COUNT(*) FROM sales
 UNION ALL
 SELECT 'Sale Items', COUNT(*) FROM sale_items
 UNION ALL
+SELECT 'Receipt Sequences', COUNT(*) FROM receipt_sequences
+UNION ALL
+SELECT 'Daily Sales Rollup', COUNT(*) FROM daily_sales_rollup
+UNION ALL
 SELECT 'Stock Movements', COUNT(*) FROM stock_movements
 UNION ALL
+SELECT 'Stock Snapshots', COUNT(*) FROM stock_snapshots
+UNION ALL
+SELECT 'Demand Forecasts', COUNT(*) FROM demand_forecasts
+UNION ALL
 SELECT 'Low Stock Alerts', COUNT(*) FROM low_stock_alerts
 UNION ALL
 SELECT 'Reports', COUNT(*) FROM reports;
@@ -502,7 +539,7 @@ ORDER BY TABLE_NAME, COLUMN_NAME;
 -- =============================================
 
 SELECT '✅ Nardo''s Inventory Database Created Successfully!' as message;
-SELECT '📊 Total Tables: 8' as info;
+SELECT '📊 Total Tables: 13' as info;
 SELECT '👥 Sample Users: nardo (admin), staff1 (user)' as info;
 SELECT '📦 Sample Products: 35 items across 5 categories' as info;
 SELECT '💰 Sample Sales: 5 transactions with complete history' as info;
@@ -535,4 +572,8 @@ SELECT '🚀 Ready to use with XAMPP MySQL!' as ready;
    - Stored procedures for common operations
    - Triggers for automated stock management
    - Indexes for performance optimization
+
+5. Query plan checks:
+   - verify_indexes.sql holds EXPLAIN statements for the date filters;
+     run it by hand against a loaded database, it changes nothing
 */
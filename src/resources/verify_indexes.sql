@@ -0,0 +1,30 @@
+-- =============================================
+-- NARDOS INVENTORY DATABASE - INDEX VERIFICATION
+-- Run by hand after database.sql; read-only
+-- =============================================
+
+USE nardos_inventory;
+
+-- =============================================
+-- DATE FILTERS
+-- =============================================
+
+-- Date filters must stay index range scans (TimeRange: col >= day AND col < day + 1).
+-- Each EXPLAIN should show type = range on the date index, not type = ALL.
+EXPLAIN SELECT * FROM sales
+WHERE sale_datetime >= '2024-12-01 00:00:00' AND sale_datetime < '2024-12-08 00:00:00'
+ORDER BY sale_datetime DESC;
+
+EXPLAIN SELECT * FROM reports
+WHERE generated_date >= '2024-12-01 00:00:00' AND generated_date < '2024-12-08 00:00:00'
+ORDER BY generated_date DESC;
+
+EXPLAIN SELECT * FROM stock_movements
+WHERE timestamp >= '2024-12-01 00:00:00' AND timestamp < '2024-12-08 00:00:00'
+ORDER BY timestamp DESC;
+
+-- Movement report (StockMovementDAO.streamMovementsWithProductNames)
+EXPLAIN SELECT m.*, p.name AS product_name FROM stock_movements m
+LEFT JOIN products p ON p.product_id = m.product_id
+WHERE m.timestamp >= '2024-12-01 00:00:00' AND m.timestamp < '2024-12-08 00:00:00'
+ORDER BY m.timestamp DESC, m.movement_id DESC;
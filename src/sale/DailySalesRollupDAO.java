@@ -0,0 +1,147 @@
+package sale;
+
+import database.DBManager;
+import database.TimeRange;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Daily sales rollup - SRS 2.1 Process Sale
+ *
+ * daily_sales_rollup holds one row per day with the number of completed
+ * sales, items sold, revenue and revenue per payment method. Statistics for
+ * any date range are a SUM over a few of these rows instead of a scan of
+ * sales and sale_items.
+ *
+ * - applySale() adds (+1) or removes (-1) one sale. SaleDAO calls it in the
+ *   same transaction that completes, refunds, cancels or deletes the sale,
+ *   so the rollup never disagrees with committed sales
+ * - rebuild() recomputes a range of days from sales and sale_items; it is
+ *   used by SalesRollupBackfill for history and to repair a range
+ *
+ * Only sales with is_completed = true are counted, as in the old
+ * statistics query.
+ */
+public class DailySalesRollupDAO {
+    private static final String COLUMNS = "sale_day, sale_count, items_sold, revenue, " +
+            "cash_total, card_total, mobile_total, other_total";
+
+    public DailySalesRollupDAO() {}
+
+    /**
+     * Adds one sale to (sign = 1) or removes it from (sign = -1) the rollup
+     * row of its day. Joins the caller's transaction if one is active.
+     */
+    public void applySale(int saleId, int sign) throws SQLException {
+        String sql = "INSERT INTO daily_sales_rollup (" + COLUMNS + ") " +
+                "SELECT DATE(s.sale_datetime), ?, " +
+                "? * (SELECT COALESCE(SUM(si.quantity), 0) FROM sale_items si WHERE si.sale_id = s.sale_id), " +
+                "? * s.total_amount, " +
+                "IF(s.payment_method = 'CASH', ? * s.total_amount, 0), " +
+                "IF(s.payment_method = 'CARD', ? * s.total_amount, 0), " +
+                "IF(s.payment_method = 'MOBILE', ? * s.total_amount, 0), " +
+                "IF(s.payment_method = 'OTHER', ? * s.total_amount, 0) " +
+                "FROM sales s WHERE s.sale_id = ? " +
+                "ON DUPLICATE KEY UPDATE sale_count = sale_count + VALUES(sale_count), " +
+                "items_sold = items_sold + VALUES(items_sold), revenue = revenue + VALUES(revenue), " +
+                "cash_total = cash_total + VALUES(cash_total), card_total = card_total + VALUES(card_total), " +
+                "mobile_total = mobile_total + VALUES(mobile_total), other_total = other_total + VALUES(other_total)";
+
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql)) {
+            for (int i = 1; i <= 7; i++) {
+                pstmt.setInt(i, sign);
+            }
+            pstmt.setInt(8, saleId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes the rollup rows of [firstDay, lastDay] from sales and
+     * sale_items. Run it inside a transaction so the range is replaced
+     * atomically.
+     *
+     * @return Number of days that had completed sales
+     */
+    public int rebuild(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        TimeRange range = TimeRange.ofDays(firstDay, lastDay);
+        String delete = "DELETE FROM daily_sales_rollup WHERE sale_day BETWEEN ? AND ?";
+        String insert = "INSERT INTO daily_sales_rollup (" + COLUMNS + ") " +
+                "SELECT DATE(s.sale_datetime), COUNT(*), COALESCE(SUM(i.units), 0), SUM(s.total_amount), " +
+                "SUM(IF(s.payment_method = 'CASH', s.total_amount, 0)), " +
+                "SUM(IF(s.payment_method = 'CARD', s.total_amount, 0)), " +
+                "SUM(IF(s.payment_method = 'MOBILE', s.total_amount, 0)), " +
+                "SUM(IF(s.payment_method = 'OTHER', s.total_amount, 0)) " +
+                "FROM sales s " +
+                "LEFT JOIN (SELECT si.sale_id, SUM(si.quantity) as units FROM sale_items si " +
+                "           JOIN sales s2 ON s2.sale_id = si.sale_id " +
+                "           WHERE " + range.where("s2.sale_datetime") + " GROUP BY si.sale_id) i " +
+                "       ON i.sale_id = s.sale_id " +
+                "WHERE " + range.where("s.sale_datetime") + " AND s.is_completed = true " +
+                "GROUP BY DATE(s.sale_datetime)";
+
+        try (Connection c = DBManager.getConnection()) {
+            try (PreparedStatement pstmt = c.prepareStatement(delete)) {
+                pstmt.setDate(1, Date.valueOf(firstDay));
+                pstmt.setDate(2, Date.valueOf(lastDay));
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = c.prepareStatement(insert)) {
+                range.bind(pstmt, range.bind(pstmt, 1));
+                return pstmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Sums the rollup rows of [firstDay, lastDay]. Top products are not part
+     * of the rollup and are left unset.
+     */
+    public SaleDAO.SalesStatistics getStatistics(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(sale_count), 0), COALESCE(SUM(items_sold), 0), " +
+                "COALESCE(SUM(revenue), 0), COALESCE(SUM(cash_total), 0), COALESCE(SUM(card_total), 0), " +
+                "COALESCE(SUM(mobile_total), 0), COALESCE(SUM(other_total), 0) " +
+                "FROM daily_sales_rollup WHERE sale_day BETWEEN ? AND ?";
+
+        SaleDAO.SalesStatistics stats = new SaleDAO.SalesStatistics();
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(firstDay));
+            pstmt.setDate(2, Date.valueOf(lastDay));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    int count = rs.getInt(1);
+                    double revenue = rs.getDouble(3);
+                    stats.setTotalSales(count);
+                    stats.setTotalItems(rs.getInt(2));
+                    stats.setTotalRevenue(revenue);
+                    stats.setAverageSale(count > 0 ? revenue / count : 0);
+
+                    Map<String, Double> byMethod = new LinkedHashMap<>();
+                    byMethod.put("CASH", rs.getDouble(4));
+                    byMethod.put("CARD", rs.getDouble(5));
+                    byMethod.put("MOBILE", rs.getDouble(6));
+                    byMethod.put("OTHER", rs.getDouble(7));
+                    stats.setPaymentMethodTotals(byMethod);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return True if the rollup has no rows yet (never backfilled)
+     */
+    public boolean isEmpty() throws SQLException {
+        try (Connection c = DBManager.getConnection();
+             Statement stmt = c.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM daily_sales_rollup LIMIT 1")) {
+            return !rs.next();
+        }
+    }
+}
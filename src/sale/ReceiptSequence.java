@@ -0,0 +1,137 @@
+package sale;
+
+import database.ConnectionPool;
+import database.DBManager;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receipt number allocation - SRS 2.1 Process Sale
+ *
+ * Receipt numbers look like NAR-20241201-01-000042: date, terminal ID
+ * (nardo.terminalId, default 1) and that day's sequence number. Numbers
+ * increase through the day and never repeat, so the UNIQUE constraint on
+ * sales.receipt_number cannot fail a checkout.
+ *
+ * Terminals lease blocks of BLOCK_SIZE numbers from receipt_sequences with
+ * one upsert (INSERT ... ON DUPLICATE KEY UPDATE next_value =
+ * LAST_INSERT_ID(next_value + n)), then hand them out from an AtomicLong.
+ * Allocating a number is a lock-free increment; only the first number of a
+ * block (or of a new day) touches the database.
+ *
+ * Numbers left in a block when the application exits are skipped, so the
+ * sequence can have gaps. Only in test mode (no database configured) do
+ * numbers come from a local counter, marked with an "L"; such numbers are
+ * never saved. With a database, a failed lease is retried on the next call
+ * and the caller gets an SQLException instead of a number that could
+ * collide with another terminal's.
+ */
+public class ReceiptSequence {
+    private static final int BLOCK_SIZE = 1000;
+    private static final int TERMINAL_ID = Integer.getInteger("nardo.terminalId", 1);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static ReceiptSequence instance;
+
+    private volatile Block current = null;
+    private final AtomicLong localCounter = new AtomicLong();
+
+    private ReceiptSequence() {}
+
+    public static synchronized ReceiptSequence getInstance() {
+        if (instance == null) {
+            instance = new ReceiptSequence();
+        }
+        return instance;
+    }
+
+    /**
+     * @throws SQLException If no block of numbers can be leased
+     */
+    public String nextReceiptNumber() throws SQLException {
+        LocalDate today = LocalDate.now();
+        if (DBManager.isTestMode()) {
+            return format(today, String.format("L%05d", localCounter.incrementAndGet()));
+        }
+        while (true) {
+            Block block = current;
+            if (block != null && block.day.equals(today)) {
+                long value = block.next.getAndIncrement();
+                if (value <= block.last) {
+                    return format(today, String.format("%06d", value));
+                }
+            }
+            leaseBlock(block, today);
+        }
+    }
+
+    public int getTerminalId() {
+        return TERMINAL_ID;
+    }
+
+    // Replaces an exhausted (or yesterday's) block
+    private synchronized void leaseBlock(Block exhausted, LocalDate day) throws SQLException {
+        if (current != exhausted) {
+            return; // Another thread already leased one
+        }
+        try {
+            long last = leaseFromDatabase(day);
+            current = new Block(day, last - BLOCK_SIZE + 1, last);
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error leasing receipt numbers: " + e.getMessage());
+            throw new SQLException("Cannot allocate a receipt number: " + e.getMessage(), e);
+        }
+    }
+
+    // LAST_INSERT_ID() is per connection, so both statements share one. The
+    // connection comes straight from the pool, not from a TransactionContext the
+    // caller may have open: the lease must commit on its own, or a rolled-back
+    // sale would take it back while this terminal keeps handing out its numbers.
+    private long leaseFromDatabase(LocalDate day) throws SQLException {
+        String upsert = "INSERT INTO receipt_sequences (sequence_day, next_value) VALUES (?, LAST_INSERT_ID(?)) " +
+                "ON DUPLICATE KEY UPDATE next_value = LAST_INSERT_ID(next_value + ?)";
+        ConnectionPool pool = DBManager.getDataSource();
+        if (pool == null) {
+            throw new SQLException("No database connection");
+        }
+        try (Connection c = pool.getConnection()) {
+            try (PreparedStatement pstmt = c.prepareStatement(upsert)) {
+                pstmt.setDate(1, Date.valueOf(day));
+                pstmt.setLong(2, BLOCK_SIZE);
+                pstmt.setLong(3, BLOCK_SIZE);
+                pstmt.executeUpdate();
+            }
+            try (Statement stmt = c.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+                throw new SQLException("Failed to lease receipt numbers");
+            }
+        }
+    }
+
+    private String format(LocalDate day, String sequence) {
+        return String.format("NAR-%s-%02d-%s", day.format(DAY_FORMAT), TERMINAL_ID, sequence);
+    }
+
+    private static class Block {
+        final LocalDate day;
+        final AtomicLong next;
+        final long last;
+
+        Block(LocalDate day, long first, long last) {
+            this.day = day;
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package sale;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import stock.StockReservationManager;
 
 public class Sale {
     private int saleId;
@@ -20,6 +24,12 @@ public class Sale {
     private String notes;
     private String receiptNumber;
     private boolean isCompleted;
+    private int itemCount = -1; // Line count from SaleDAO.loadItemCounts when items are not loaded
+    
+    // Open carts (created with createNewSale) hold their items in StockReservationManager
+    private static final AtomicLong NEXT_CART_ID = new AtomicLong();
+    private final long cartId = NEXT_CART_ID.incrementAndGet();
+    private boolean reservingStock = false;
     
     // Constants
     public static final double TAX_RATE = 0.10; // 10% tax
@@ -46,9 +56,11 @@ public class Sale {
         generateReceiptNumber();
     }
     
-    // Factory method
+    // Factory method for a new cart; its items reserve stock until checkout
     public static Sale createNewSale(int userId, String userName) {
-        return new Sale(userId, userName);
+        Sale sale = new Sale(userId, userName);
+        sale.reservingStock = true;
+        return sale;
     }
     
     // Getters and Setters
@@ -67,9 +79,23 @@ public class Sale {
     public List<SaleItem> getItems() { return items; }
     public void setItems(List<SaleItem> items) { 
         this.items = items;
+        this.itemCount = -1;
         calculateTotals();
     }
     
+    // Number of item lines, whether the items themselves were loaded or only counted
+    public int getItemCount() {
+        return itemCount >= 0 ? itemCount : items.size();
+    }
+    
+    void setItemCount(int itemCount) { this.itemCount = itemCount; }
+    
+    // Totals as stored on the sales row, for sales loaded without their items
+    void setStoredTotals(double subtotal, double totalAmount) {
+        this.subtotal = subtotal;
+        this.totalAmount = totalAmount;
+    }
+    
     public double getSubtotal() { return subtotal; }
     
     public double getTaxAmount() { return taxAmount; }
@@ -102,7 +128,18 @@ public class Sale {
     public void setCompleted(boolean completed) { isCompleted = completed; }
     
     // Business methods
+    
+    /**
+     * Adds an item, merging it with an existing line for the same product.
+     * For an open cart the quantity is reserved first.
+     *
+     * @throws StockReservationManager.ReservationException If the stock is not available
+     */
     public void addItem(SaleItem item) {
+        if (reservingStock) {
+            StockReservationManager.getInstance().reserve(cartId, item.getProductId(), item.getQuantity());
+        }
+        
         // Check if item already exists
         for (SaleItem existing : items) {
             if (existing.getProductId() == item.getProductId()) {
@@ -119,15 +156,24 @@ public class Sale {
     
     public void removeItem(int productId) {
         items.removeIf(item -> item.getProductId() == productId);
+        if (reservingStock) {
+            StockReservationManager.getInstance().adjust(cartId, productId, 0);
+        }
         calculateTotals();
     }
     
+    /**
+     * @throws StockReservationManager.ReservationException If an increase is not available
+     */
     public void updateItemQuantity(int productId, int newQuantity) {
         for (SaleItem item : items) {
             if (item.getProductId() == productId) {
                 if (newQuantity <= 0) {
                     removeItem(productId);
                 } else {
+                    if (reservingStock) {
+                        StockReservationManager.getInstance().adjust(cartId, productId, newQuantity);
+                    }
                     item.setQuantity(newQuantity);
                 }
                 calculateTotals();
@@ -138,9 +184,27 @@ public class Sale {
     
     public void clearItems() {
         items.clear();
+        releaseReservations();
         calculateTotals();
     }
     
+    /**
+     * Gives back any stock this cart still holds (e.g. the cart is abandoned).
+     */
+    public void releaseReservations() {
+        if (reservingStock) {
+            StockReservationManager.getInstance().releaseAll(cartId);
+        }
+    }
+    
+    // Called once the sale's stock deduction has committed
+    void consumeReservations() {
+        if (reservingStock) {
+            StockReservationManager.getInstance().consume(cartId);
+            reservingStock = false;
+        }
+    }
+    
     public int getTotalItems() {
         return items.stream().mapToInt(SaleItem::getQuantity).sum();
     }
@@ -178,10 +242,20 @@ public class Sale {
     }
     
     private void generateReceiptNumber() {
-        // Format: NAR-YYYYMMDD-XXXXX
-        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String random = String.format("%05d", (int)(Math.random() * 100000));
-        this.receiptNumber = "NAR-" + date + "-" + random;
+        // Format: NAR-YYYYMMDD-TT-NNNNNN (see ReceiptSequence)
+        try {
+            this.receiptNumber = ReceiptSequence.getInstance().nextReceiptNumber();
+        } catch (SQLException e) {
+            // The cart can still be filled; checkout retries (ensureReceiptNumber)
+            this.receiptNumber = null;
+        }
+    }
+    
+    // Called at checkout: a sale is never saved without a receipt number
+    void ensureReceiptNumber() throws SQLException {
+        if (receiptNumber == null) {
+            receiptNumber = ReceiptSequence.getInstance().nextReceiptNumber();
+        }
     }
     
     // SRS 1.3: Check if sale will trigger low stock
@@ -1,18 +1,36 @@
 package sale;
 
+import database.Page;
+import database.StatementShapes;
+import database.TimeRange;
+import database.TransactionContext;
+
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SaleDAO {
+    // Sale IDs per IN (...) list in loadItems() and loadItemCounts()
+    private static final int BATCH_SIZE = 500;
+    
     private Connection connection;
+    private final DailySalesRollupDAO rollupDAO = new DailySalesRollupDAO();
     
     public SaleDAO(Connection connection) {
         this.connection = connection;
     }
     
+    // Joins the transaction bound to this thread, if any
+    private Connection conn() {
+        Connection transactional = TransactionContext.currentConnection();
+        return transactional != null ? transactional : connection;
+    }
+    
     // Save a new sale
     public int saveSale(Sale sale) throws SQLException {
         if (connection == null) {
@@ -36,7 +54,7 @@ public class SaleDAO {
                     "payment_status, notes, receipt_number, is_completed) " +
                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = conn().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setTimestamp(1, Timestamp.valueOf(sale.getSaleDateTime()));
             pstmt.setInt(2, sale.getUserId());
             pstmt.setString(3, sale.getUserName());
@@ -61,6 +79,10 @@ public class SaleDAO {
                         // Save sale items
                         saveSaleItems(saleId, sale.getItems());
 
+                        if (sale.isCompleted()) {
+                            rollupDAO.applySale(saleId, 1);
+                        }
+
                         return saleId;
                     }
                 }
@@ -87,7 +109,7 @@ public class SaleDAO {
                     "product_category, quantity, unit_price, line_total) " +
                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
             if (items != null) {
                 for (SaleItem item : items) {
                     pstmt.setInt(1, saleId);
@@ -117,7 +139,7 @@ public class SaleDAO {
 
         String sql = "SELECT * FROM sales WHERE sale_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
             pstmt.setInt(1, saleId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -142,28 +164,95 @@ public class SaleDAO {
 
         String sql = "SELECT * FROM sale_items WHERE sale_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
             pstmt.setInt(1, saleId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    SaleItem item = new SaleItem();
-                    item.setSaleItemId(rs.getInt("sale_item_id"));
-                    item.setSaleId(rs.getInt("sale_id"));
-                    item.setProductId(rs.getInt("product_id"));
-                    item.setProductName(rs.getString("product_name"));
-                    item.setProductCategory(rs.getString("product_category"));
-                    item.setQuantity(rs.getInt("quantity"));
-                    item.setUnitPrice(rs.getDouble("unit_price"));
-                    item.setLineTotal(rs.getDouble("line_total"));
-
-                    items.add(item);
+                    items.add(mapResultSetToSaleItem(rs));
                 }
             }
         }
         return items;
     }
     
+    /**
+     * Loads the items of a list of sales (e.g. one page) with one
+     * sale_id IN (...) query per BATCH_SIZE sales, instead of one query per
+     * sale. Rows come back ordered by sale_id and are attached through a
+     * sorted int index, which also recalculates each sale's totals.
+     */
+    public void loadItems(List<Sale> sales) throws SQLException {
+        if (connection == null || sales.isEmpty()) return;
+
+        SaleIndex index = new SaleIndex(sales);
+        for (int from = 0; from < index.size(); from += BATCH_SIZE) {
+            int to = Math.min(index.size(), from + BATCH_SIZE);
+            int size = StatementShapes.paddedSize(to - from, BATCH_SIZE);
+            String sql = "SELECT * FROM sale_items WHERE sale_id IN (" + StatementShapes.repeat("?", size) + ") " +
+                        "ORDER BY sale_id, sale_item_id";
+
+            try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
+                bindIds(pstmt, index, from, to, size);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    int saleId = -1;
+                    List<SaleItem> items = null;
+                    while (rs.next()) {
+                        SaleItem item = mapResultSetToSaleItem(rs);
+                        if (item.getSaleId() != saleId) {
+                            if (items != null) {
+                                index.get(saleId).setItems(items);
+                            }
+                            saleId = item.getSaleId();
+                            items = new ArrayList<>();
+                        }
+                        items.add(item);
+                    }
+                    if (items != null) {
+                        index.get(saleId).setItems(items);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Sets getItemCount() on a list of sales with one COUNT(*) ... GROUP BY
+     * query per BATCH_SIZE sales, for views that list sales without their items.
+     */
+    public void loadItemCounts(List<Sale> sales) throws SQLException {
+        if (connection == null || sales.isEmpty()) return;
+
+        SaleIndex index = new SaleIndex(sales);
+        for (int i = 0; i < index.size(); i++) {
+            index.saleAt(i).setItemCount(0); // Sales without items get no row below
+        }
+        for (int from = 0; from < index.size(); from += BATCH_SIZE) {
+            int to = Math.min(index.size(), from + BATCH_SIZE);
+            int size = StatementShapes.paddedSize(to - from, BATCH_SIZE);
+            String sql = "SELECT sale_id, COUNT(*) FROM sale_items WHERE sale_id IN (" +
+                        StatementShapes.repeat("?", size) + ") GROUP BY sale_id";
+
+            try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
+                bindIds(pstmt, index, from, to, size);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        index.get(rs.getInt(1)).setItemCount(rs.getInt(2));
+                    }
+                }
+            }
+        }
+    }
+    
+    // Binds sale IDs [from, to) to a padded IN list, repeating the last ID
+    private static void bindIds(PreparedStatement pstmt, SaleIndex index, int from, int to, int size) throws SQLException {
+        for (int i = 0; i < size; i++) {
+            pstmt.setInt(i + 1, index.idAt(Math.min(from + i, to - 1)));
+        }
+    }
+    
     // Get all sales
     public List<Sale> getAllSales() throws SQLException {
         List<Sale> sales = new ArrayList<>();
@@ -171,27 +260,92 @@ public class SaleDAO {
 
         String sql = "SELECT * FROM sales ORDER BY sale_datetime DESC";
 
-        try (Statement stmt = connection.createStatement();
+        try (Statement stmt = conn().createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
                 sales.add(mapResultSetToSale(rs));
             }
         }
+        loadItemCounts(sales);
         return sales;
     }
     
+    // Get one page of sales, newest first, ordered by (sale_datetime, sale_id) descending
+    public Page<Sale> getSalesPage(Page.Cursor after, int limit) throws SQLException {
+        if (connection == null) return Page.empty();
+
+        String sql = after == null
+                ? "SELECT * FROM sales ORDER BY sale_datetime DESC, sale_id DESC LIMIT ?"
+                : "SELECT * FROM sales WHERE (sale_datetime < ? OR (sale_datetime = ? AND sale_id < ?)) " +
+                  "ORDER BY sale_datetime DESC, sale_id DESC LIMIT ?";
+        List<Sale> sales = new ArrayList<>();
+
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                pstmt.setObject(index++, after.getSortKey());
+                pstmt.setObject(index++, after.getSortKey());
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, limit + 1);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sales.add(mapResultSetToSale(rs));
+                }
+            }
+        }
+        Page<Sale> page = Page.of(sales, limit,
+                s -> new Page.Cursor(Timestamp.valueOf(s.getSaleDateTime()), s.getSaleId()));
+        loadItems(page.getItems());
+        return page;
+    }
+    
+    // Get one page of sales starting at a row offset (fallback when no cursor is known)
+    public Page<Sale> getSalesPageAt(int offset, int limit) throws SQLException {
+        if (connection == null) return Page.empty();
+
+        String sql = "SELECT * FROM sales ORDER BY sale_datetime DESC, sale_id DESC LIMIT ? OFFSET ?";
+        List<Sale> sales = new ArrayList<>();
+
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
+            pstmt.setInt(1, limit + 1);
+            pstmt.setInt(2, offset);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sales.add(mapResultSetToSale(rs));
+                }
+            }
+        }
+        Page<Sale> page = Page.of(sales, limit,
+                s -> new Page.Cursor(Timestamp.valueOf(s.getSaleDateTime()), s.getSaleId()));
+        loadItems(page.getItems());
+        return page;
+    }
+    
+    // Count all sales
+    public int getSalesCount() throws SQLException {
+        if (connection == null) return 0;
+
+        try (Statement stmt = conn().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sales")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
     // Get sales by date range
     public List<Sale> getSalesByDateRange(LocalDate startDate, LocalDate endDate) throws SQLException {
         List<Sale> sales = new ArrayList<>();
         if (connection == null) return sales;
 
-        String sql = "SELECT * FROM sales WHERE DATE(sale_datetime) BETWEEN ? AND ? " +
+        TimeRange range = TimeRange.ofDays(startDate, endDate);
+        String sql = "SELECT * FROM sales WHERE " + range.where("sale_datetime") + " " +
                     "ORDER BY sale_datetime DESC";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDate(1, Date.valueOf(startDate));
-            pstmt.setDate(2, Date.valueOf(endDate));
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
+            range.bind(pstmt, 1);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -199,6 +353,7 @@ public class SaleDAO {
                 }
             }
         }
+        loadItemCounts(sales);
         return sales;
     }
     
@@ -216,7 +371,7 @@ public class SaleDAO {
 
         String sql = "SELECT * FROM sales WHERE user_id = ? ORDER BY sale_datetime DESC";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
             pstmt.setInt(1, userId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -225,6 +380,7 @@ public class SaleDAO {
                 }
             }
         }
+        loadItemCounts(sales);
         return sales;
     }
     
@@ -232,12 +388,12 @@ public class SaleDAO {
     public double getTotalSalesAmount(LocalDate startDate, LocalDate endDate) throws SQLException {
         if (connection == null) return 0;
 
+        TimeRange range = TimeRange.ofDays(startDate, endDate);
         String sql = "SELECT COALESCE(SUM(total_amount), 0) as total FROM sales " +
-                    "WHERE DATE(sale_datetime) BETWEEN ? AND ? AND is_completed = true";
+                    "WHERE " + range.where("sale_datetime") + " AND is_completed = true";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDate(1, Date.valueOf(startDate));
-            pstmt.setDate(2, Date.valueOf(endDate));
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
+            range.bind(pstmt, 1);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -268,29 +424,8 @@ public class SaleDAO {
             return stats;
         }
 
-        String sql = "SELECT " +
-                    "COUNT(*) as total_sales, " +
-                    "COALESCE(SUM(total_amount), 0) as total_revenue, " +
-                    "COALESCE(AVG(total_amount), 0) as avg_sale, " +
-                    "COALESCE(SUM(total_items), 0) as total_items " +
-                    "FROM (SELECT s.sale_id, s.total_amount, " +
-                    "      (SELECT SUM(quantity) FROM sale_items si WHERE si.sale_id = s.sale_id) as total_items " +
-                    "      FROM sales s " +
-                    "      WHERE DATE(s.sale_datetime) BETWEEN ? AND ? AND s.is_completed = true) as sales_data";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDate(1, Date.valueOf(startDate));
-            pstmt.setDate(2, Date.valueOf(endDate));
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    stats.setTotalSales(rs.getInt("total_sales"));
-                    stats.setTotalRevenue(rs.getDouble("total_revenue"));
-                    stats.setAverageSale(rs.getDouble("avg_sale"));
-                    stats.setTotalItems(rs.getInt("total_items"));
-                }
-            }
-        }
+        // Totals are summed from a few daily_sales_rollup rows
+        stats = rollupDAO.getStatistics(startDate, endDate);
 
         // Get top products
         stats.setTopProducts(getTopProducts(startDate, endDate, 5));
@@ -303,21 +438,21 @@ public class SaleDAO {
         List<TopProduct> topProducts = new ArrayList<>();
         if (connection == null) return topProducts;
 
+        TimeRange range = TimeRange.ofDays(startDate, endDate);
         String sql = "SELECT p.product_id, p.name, p.category, " +
                     "SUM(si.quantity) as total_sold, " +
                     "SUM(si.line_total) as total_revenue " +
                     "FROM sale_items si " +
                     "JOIN sales s ON si.sale_id = s.sale_id " +
                     "JOIN products p ON si.product_id = p.product_id " +
-                    "WHERE DATE(s.sale_datetime) BETWEEN ? AND ? AND s.is_completed = true " +
+                    "WHERE " + range.where("s.sale_datetime") + " AND s.is_completed = true " +
                     "GROUP BY p.product_id, p.name, p.category " +
                     "ORDER BY total_sold DESC " +
                     "LIMIT ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDate(1, Date.valueOf(startDate));
-            pstmt.setDate(2, Date.valueOf(endDate));
-            pstmt.setInt(3, limit);
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
+            int index = range.bind(pstmt, 1);
+            pstmt.setInt(index, limit);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -335,7 +470,7 @@ public class SaleDAO {
         return topProducts;
     }
     
-    // Update sale status
+    // Update sale status; completing, refunding or cancelling a sale also updates the daily rollup
     public boolean updateSaleStatus(int saleId, String status, boolean isCompleted) throws SQLException {
         if (connection == null) {
             // test-mode: pretend update succeeded
@@ -343,31 +478,98 @@ public class SaleDAO {
             return true;
         }
 
-        String sql = "UPDATE sales SET payment_status = ?, is_completed = ? WHERE sale_id = ?";
+        TransactionContext ownTransaction = TransactionContext.isActive() ? null : TransactionContext.begin(connection);
+        try {
+            Boolean wasCompleted = lockCompleted(saleId);
+            if (wasCompleted == null) {
+                return false;
+            }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, status);
-            pstmt.setBoolean(2, isCompleted);
-            pstmt.setInt(3, saleId);
+            String sql = "UPDATE sales SET payment_status = ?, is_completed = ? WHERE sale_id = ?";
+            try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
+                pstmt.setString(1, status);
+                pstmt.setBoolean(2, isCompleted);
+                pstmt.setInt(3, saleId);
+                pstmt.executeUpdate();
+            }
 
-            return pstmt.executeUpdate() > 0;
+            if (wasCompleted != isCompleted) {
+                rollupDAO.applySale(saleId, isCompleted ? 1 : -1);
+                applyToTelemetry(saleId, isCompleted ? 1 : -1);
+            }
+            if (ownTransaction != null) {
+                ownTransaction.commit();
+            }
+            return true;
+        } finally {
+            if (ownTransaction != null) {
+                ownTransaction.close();
+            }
         }
     }
     
     // Delete sale (for cancellations)
     public boolean deleteSale(int saleId) throws SQLException {
-        // First delete sale items
-        String deleteItemsSql = "DELETE FROM sale_items WHERE sale_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteItemsSql)) {
+        TransactionContext ownTransaction = TransactionContext.isActive() ? null : TransactionContext.begin(connection);
+        try {
+            // Take a completed sale out of the rollup while its items still exist
+            if (Boolean.TRUE.equals(lockCompleted(saleId))) {
+                rollupDAO.applySale(saleId, -1);
+                applyToTelemetry(saleId, -1);
+            }
+
+            // First delete sale items
+            String deleteItemsSql = "DELETE FROM sale_items WHERE sale_id = ?";
+            try (PreparedStatement pstmt = conn().prepareStatement(deleteItemsSql)) {
+                pstmt.setInt(1, saleId);
+                pstmt.executeUpdate();
+            }
+
+            // Then delete sale
+            String deleteSaleSql = "DELETE FROM sales WHERE sale_id = ?";
+            boolean deleted;
+            try (PreparedStatement pstmt = conn().prepareStatement(deleteSaleSql)) {
+                pstmt.setInt(1, saleId);
+                deleted = pstmt.executeUpdate() > 0;
+            }
+            if (ownTransaction != null) {
+                ownTransaction.commit();
+            }
+            return deleted;
+        } finally {
+            if (ownTransaction != null) {
+                ownTransaction.close();
+            }
+        }
+    }
+    
+    // Locks the sale row for the rest of the transaction; null if it does not exist
+    private Boolean lockCompleted(int saleId) throws SQLException {
+        String sql = "SELECT is_completed FROM sales WHERE sale_id = ? FOR UPDATE";
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
             pstmt.setInt(1, saleId);
-            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getBoolean(1) : null;
+            }
         }
-        
-        // Then delete sale
-        String deleteSaleSql = "DELETE FROM sales WHERE sale_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(deleteSaleSql)) {
+    }
+    
+    // Same change as the rollup, for today's in-memory counters; applied only if the transaction commits
+    private void applyToTelemetry(int saleId, int sign) throws SQLException {
+        String sql = "SELECT s.sale_datetime, s.total_amount, " +
+                "(SELECT COALESCE(SUM(si.quantity), 0) FROM sale_items si WHERE si.sale_id = s.sale_id) " +
+                "FROM sales s WHERE s.sale_id = ?";
+        try (PreparedStatement pstmt = conn().prepareStatement(sql)) {
             pstmt.setInt(1, saleId);
-            return pstmt.executeUpdate() > 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    LocalDate day = rs.getTimestamp(1).toLocalDateTime().toLocalDate();
+                    double revenue = rs.getDouble(2);
+                    long items = rs.getLong(3);
+                    TransactionContext.afterCommit(() ->
+                            SalesTelemetry.getInstance().applySale(day, sign, items, revenue));
+                }
+            }
         }
     }
     
@@ -378,10 +580,9 @@ public class SaleDAO {
         sale.setSaleDateTime(rs.getTimestamp("sale_datetime").toLocalDateTime());
         sale.setUserId(rs.getInt("user_id"));
         sale.setUserName(rs.getString("user_name"));
-        // sale.setSubtotal(rs.getDouble("subtotal"));
         sale.setTaxAmount(rs.getDouble("tax_amount"));
         sale.setDiscountAmount(rs.getDouble("discount_amount"));
-        // sale.setTotalAmount(rs.getDouble("total_amount"));
+        sale.setStoredTotals(rs.getDouble("subtotal"), rs.getDouble("total_amount"));
         sale.setPaymentMethod(rs.getString("payment_method"));
         sale.setPaymentStatus(rs.getString("payment_status"));
         sale.setNotes(rs.getString("notes"));
@@ -391,12 +592,54 @@ public class SaleDAO {
         return sale;
     }
     
+    private SaleItem mapResultSetToSaleItem(ResultSet rs) throws SQLException {
+        SaleItem item = new SaleItem();
+        item.setSaleItemId(rs.getInt("sale_item_id"));
+        item.setSaleId(rs.getInt("sale_id"));
+        item.setProductId(rs.getInt("product_id"));
+        item.setProductName(rs.getString("product_name"));
+        item.setProductCategory(rs.getString("product_category"));
+        item.setQuantity(rs.getInt("quantity"));
+        item.setUnitPrice(rs.getDouble("unit_price"));
+        item.setLineTotal(rs.getDouble("line_total"));
+        return item;
+    }
+    
+    // Sales sorted by ID, looked up by binary search on a plain int[]
+    private static class SaleIndex {
+        private final int[] ids;
+        private final Sale[] sales;
+
+        SaleIndex(List<Sale> list) {
+            Sale[] sorted = list.toArray(new Sale[0]);
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a.getSaleId(), b.getSaleId()));
+            ids = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                ids[i] = sorted[i].getSaleId();
+            }
+            sales = sorted;
+        }
+
+        int size() { return ids.length; }
+        int idAt(int i) { return ids[i]; }
+        Sale saleAt(int i) { return sales[i]; }
+
+        Sale get(int saleId) {
+            int i = Arrays.binarySearch(ids, saleId);
+            if (i < 0) {
+                throw new IllegalStateException("Sale ID " + saleId + " was not requested");
+            }
+            return sales[i];
+        }
+    }
+    
     // Inner classes for statistics
     public static class SalesStatistics {
         private int totalSales;
         private double totalRevenue;
         private double averageSale;
         private int totalItems;
+        private Map<String, Double> paymentMethodTotals = new LinkedHashMap<>();
         private List<TopProduct> topProducts;
         
         // Getters and Setters
@@ -412,6 +655,10 @@ public class SaleDAO {
         public int getTotalItems() { return totalItems; }
         public void setTotalItems(int totalItems) { this.totalItems = totalItems; }
         
+        // Revenue per payment method (CASH, CARD, MOBILE, OTHER)
+        public Map<String, Double> getPaymentMethodTotals() { return paymentMethodTotals; }
+        public void setPaymentMethodTotals(Map<String, Double> paymentMethodTotals) { this.paymentMethodTotals = paymentMethodTotals; }
+        
         public List<TopProduct> getTopProducts() { return topProducts; }
         public void setTopProducts(List<TopProduct> topProducts) { this.topProducts = topProducts; }
         
@@ -1,16 +1,17 @@
 package sale;
 
+import database.Page;
+import main.PagedTableModel;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
 import javax.swing.filechooser.FileFilter;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.FileWriter;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -18,7 +19,7 @@ import java.util.List;
 
 public class SalesHistoryForm extends JPanel {
     private SalesProcessor salesProcessor;
-    private DefaultTableModel salesModel;
+    private PagedTableModel<Sale> salesModel;
     private JTable salesTable;
     
     private JFormattedTextField startDateField;
@@ -58,25 +59,25 @@ public class SalesHistoryForm extends JPanel {
         
         // Sales table
         String[] columns = {"ID", "Date/Time", "Receipt #", "Items", "Subtotal", "Tax", "Total", "Payment", "Status"};
-        salesModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+        Class<?>[] columnClasses = {Integer.class, String.class, String.class, Integer.class,
+                                    String.class, String.class, String.class, String.class, String.class};
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        salesModel = new PagedTableModel<>(columns, columnClasses, (sale, column) -> {
+            switch (column) {
+                case 0: return sale.getSaleId();
+                case 1: return sale.getSaleDateTime().format(dateFormat);
+                case 2: return sale.getReceiptNumber();
+                case 3: return sale.getItemCount();
+                case 4: return String.format("%.2f", sale.getSubtotal());
+                case 5: return String.format("%.2f", sale.getTaxAmount());
+                case 6: return String.format("%.2f", sale.getTotalAmount());
+                case 7: return sale.getPaymentMethod();
+                default: return sale.getPaymentStatus();
             }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                switch (columnIndex) {
-                    case 0: return Integer.class;
-                    case 3: return Integer.class;
-                    case 4: case 5: case 6: return Double.class;
-                    default: return String.class;
-                }
-            }
-        };
+        });
         salesTable = new JTable(salesModel);
         salesTable.setRowHeight(25);
-        salesTable.setAutoCreateRowSorter(true);
+        // No row sorter: sorting would pull every page; rows arrive newest first
     }
     
     private void layoutComponents() {
@@ -118,15 +119,24 @@ public class SalesHistoryForm extends JPanel {
         exportButton.addActionListener(e -> exportSales());
     }
     
+    // Pages through the full sales history; rows are fetched as the table scrolls
     private void loadSales() {
-        try {
-            List<Sale> sales = salesProcessor.getAllSales();
-            displaySales(sales);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                "Error loading sales: " + e.getMessage(),
-                "Load Error", JOptionPane.ERROR_MESSAGE);
-        }
+        salesModel.setSource(new PagedTableModel.PageSource<Sale>() {
+            @Override
+            public int count() throws Exception {
+                return salesProcessor.getSalesCount();
+            }
+            
+            @Override
+            public Page<Sale> fetch(Page.Cursor after, int limit) throws Exception {
+                return salesProcessor.getSalesPage(after, limit);
+            }
+            
+            @Override
+            public Page<Sale> fetchAt(int offset, int limit) throws Exception {
+                return salesProcessor.getSalesPageAt(offset, limit);
+            }
+        });
     }
     
     private void filterSales() {
@@ -159,21 +169,7 @@ public class SalesHistoryForm extends JPanel {
     }
     
     private void displaySales(List<Sale> sales) {
-        salesModel.setRowCount(0);
-        
-        for (Sale sale : sales) {
-            salesModel.addRow(new Object[]{
-                sale.getSaleId(),
-                sale.getSaleDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")),
-                sale.getReceiptNumber(),
-                sale.getItems().size(),
-                String.format("%.2f", sale.getSubtotal()),
-                String.format("%.2f", sale.getTaxAmount()),
-                String.format("%.2f", sale.getTotalAmount()),
-                sale.getPaymentMethod(),
-                sale.getPaymentStatus()
-            });
-        }
+        salesModel.setSource(PagedTableModel.listSource(sales));
     }
     
     private void viewSaleDetails() {
@@ -185,8 +181,11 @@ public class SalesHistoryForm extends JPanel {
             return;
         }
         
-        int modelRow = salesTable.convertRowIndexToModel(selectedRow);
-        int saleId = (int) salesModel.getValueAt(modelRow, 0);
+        Sale selected = salesModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // Row is still loading
+        }
+        int saleId = selected.getSaleId();
         
         try {
             Sale sale = salesProcessor.getSaleById(saleId);
@@ -250,8 +249,11 @@ public class SalesHistoryForm extends JPanel {
             return;
         }
         
-        int modelRow = salesTable.convertRowIndexToModel(selectedRow);
-        int saleId = (int) salesModel.getValueAt(modelRow, 0);
+        Sale selected = salesModel.getRow(selectedRow);
+        if (selected == null) {
+            return; // Row is still loading
+        }
+        int saleId = selected.getSaleId();
         
         try {
             Sale sale = salesProcessor.getSaleById(saleId);
@@ -289,7 +291,7 @@ public class SalesHistoryForm extends JPanel {
 
     // Inner class for export dialog
     private class ExportSalesDialog extends JDialog {
-        private DefaultTableModel tableModel;
+        private PagedTableModel<Sale> tableModel;
         private JTable table;
         private JRadioButton exportAllRadio;
         private JRadioButton exportFilteredRadio;
@@ -300,7 +302,7 @@ public class SalesHistoryForm extends JPanel {
         private JButton exportButton;
         private JButton cancelButton;
 
-        public ExportSalesDialog(Frame parent, DefaultTableModel model, JTable table) {
+        public ExportSalesDialog(Frame parent, PagedTableModel<Sale> model, JTable table) {
             super(parent, "Export Sales Data", true);
             this.tableModel = model;
             this.table = table;
@@ -491,7 +493,7 @@ public class SalesHistoryForm extends JPanel {
                     try {
                         exportToCSV(exportFile, rowsToExport);
                         return true;
-                    } catch (IOException e) {
+                    } catch (Exception e) {
                         errorMessage = e.getMessage();
                         return false;
                     }
@@ -530,39 +532,26 @@ public class SalesHistoryForm extends JPanel {
             List<Integer> rows = new ArrayList<>();
 
             if (exportAllRadio.isSelected()) {
-                // Get all sales from database
-                try {
-                    List<Sale> allSales = salesProcessor.getAllSales();
-                    // Convert to row indices (for this we'd need to map sale objects to table rows)
-                    // For simplicity, we'll export the current table data
-                    for (int i = 0; i < tableModel.getRowCount(); i++) {
-                        rows.add(i);
-                    }
-                } catch (Exception e) {
-                    // Fall back to current table data
-                    for (int i = 0; i < tableModel.getRowCount(); i++) {
-                        rows.add(i);
-                    }
+                // Export every sale; unloaded pages are fetched during the export
+                for (int i = 0; i < tableModel.getRowCount(); i++) {
+                    rows.add(i);
                 }
             } else if (exportSelectedRadio.isSelected()) {
                 // Export only selected rows
-                int[] selectedRows = table.getSelectedRows();
-                for (int viewRow : selectedRows) {
-                    int modelRow = table.convertRowIndexToModel(viewRow);
-                    rows.add(modelRow);
+                for (int row : table.getSelectedRows()) {
+                    rows.add(row);
                 }
             } else {
                 // Export filtered rows (current view)
                 for (int i = 0; i < table.getRowCount(); i++) {
-                    int modelRow = table.convertRowIndexToModel(i);
-                    rows.add(modelRow);
+                    rows.add(i);
                 }
             }
 
             return rows;
         }
 
-        private void exportToCSV(File file, List<Integer> rows) throws IOException {
+        private void exportToCSV(File file, List<Integer> rows) throws Exception {
             try (FileWriter writer = new FileWriter(file)) {
                 // Write headers if requested
                 if (includeHeadersCheck.isSelected()) {
@@ -579,7 +568,7 @@ public class SalesHistoryForm extends JPanel {
                 for (int i = 0; i < rows.size(); i++) {
                     int row = rows.get(i);
                     for (int col = 0; col < tableModel.getColumnCount(); col++) {
-                        Object value = tableModel.getValueAt(row, col);
+                        Object value = tableModel.getValueAtLoading(row, col);
                         writer.append(escapeCSV(value != null ? value.toString() : ""));
                         if (col < tableModel.getColumnCount() - 1) {
                             writer.append(',');
@@ -205,13 +205,11 @@ public class SalesPanel extends JPanel {
     
     private void loadDashboardData() {
         SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
-            private SaleDAO.SalesStatistics stats;
             private java.util.List<Sale> recentSales;
             
             @Override
             protected Void doInBackground() throws Exception {
                 try {
-                    stats = salesProcessor.getTodayStatistics();
                     recentSales = salesProcessor.getSalesByDateRange(
                         java.time.LocalDate.now(),
                         java.time.LocalDate.now()
@@ -225,11 +223,11 @@ public class SalesPanel extends JPanel {
             @Override
             protected void done() {
                 try {
-                    if (stats != null) {
-                        todaySalesLabel.setText(String.valueOf(stats.getTotalSales()));
-                        todayRevenueLabel.setText(String.format("$%.2f", stats.getTotalRevenue()));
-                        todayItemsLabel.setText(String.valueOf(stats.getTotalItems()));
-                    }
+                    // Today's figures from the live counters (no query)
+                    SalesTelemetry telemetry = SalesTelemetry.getInstance();
+                    todaySalesLabel.setText(String.valueOf(telemetry.getTodaySaleCount()));
+                    todayRevenueLabel.setText(String.format("$%.2f", telemetry.getTodayRevenue()));
+                    todayItemsLabel.setText(String.valueOf(telemetry.getTodayItemCount()));
                     
                     if (recentSales != null) {
                         loadRecentSales(recentSales);
@@ -254,7 +252,7 @@ public class SalesPanel extends JPanel {
             recentSalesModel.addRow(new Object[]{
                 sale.getSaleDateTime().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss")),
                 sale.getReceiptNumber(),
-                sale.getItems().size(),
+                sale.getItemCount(),
                 String.format("$%.2f", sale.getTotalAmount()),
                 sale.getPaymentStatus()
             });
@@ -1,5 +1,6 @@
 package sale;
 import product.*;
+import stock.StockReservationManager;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
@@ -619,17 +620,17 @@ public class SalesProcessingForm extends JPanel {
         
         int quantity = (int) quantitySpinner.getValue();
         
-        // Check stock
+        // Check stock not already held by this or another open cart
         try {
-            Product product = productService.getProductById(productId);
-            if (product.getQuantity() < quantity) {
+            int available = StockReservationManager.getInstance().getAvailable(productId);
+            if (available < quantity) {
                 int option = JOptionPane.showConfirmDialog(this,
-                    "Only " + product.getQuantity() + " in stock. Add " + 
-                    product.getQuantity() + " instead?",
+                    "Only " + available + " available. Add " + 
+                    available + " instead?",
                     "Insufficient Stock", JOptionPane.YES_NO_OPTION);
                 
                 if (option == JOptionPane.YES_OPTION) {
-                    quantity = product.getQuantity();
+                    quantity = available;
                 } else {
                     return;
                 }
@@ -696,26 +697,22 @@ public class SalesProcessingForm extends JPanel {
                 SaleItem item = currentSale.getItems().get(row);
                 
                 try {
-                    // Check stock
-                    Product product = productService.getProductById(item.getProductId());
-                    if (product.getQuantity() + item.getQuantity() < newQuantity) {
-                        JOptionPane.showMessageDialog(this,
-                            "Insufficient stock. Only " + 
-                            (product.getQuantity() + item.getQuantity()) + 
-                            " available.",
-                            "Stock Error", JOptionPane.ERROR_MESSAGE);
-                        
-                        // Reset to original quantity
-                        saleItemsModel.setValueAt(item.getQuantity(), row, 2);
-                        return;
-                    }
-                    
-                    item.setQuantity(newQuantity);
+                    // Reserves (or releases) the difference
+                    currentSale.updateItemQuantity(item.getProductId(), newQuantity);
                     saleItemsModel.setValueAt(
                         String.format("$%.2f", item.getLineTotal()), row, 4);
                     
                     updateTotalsDisplay();
                     
+                } catch (StockReservationManager.ReservationException e) {
+                    JOptionPane.showMessageDialog(this,
+                        "Insufficient stock. Only " + 
+                        (e.getAvailable() + item.getQuantity()) + 
+                        " available.",
+                        "Stock Error", JOptionPane.ERROR_MESSAGE);
+                    
+                    // Reset to original quantity
+                    saleItemsModel.setValueAt(item.getQuantity(), row, 2);
                 } catch (Exception e) {
                     JOptionPane.showMessageDialog(this,
                         "Error updating quantity: " + e.getMessage(),
@@ -957,6 +954,8 @@ public class SalesProcessingForm extends JPanel {
             "Cancel Sale", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
+            currentSale.releaseReservations();
+            
             // Close this window
             Window window = SwingUtilities.getWindowAncestor(this);
             if (window != null) {
@@ -966,7 +965,8 @@ public class SalesProcessingForm extends JPanel {
     }
     
     private void resetForNextSale() {
-        // Create new sale
+        // Create new sale (a processed sale has already consumed its reservations)
+        currentSale.releaseReservations();
         currentSale = Sale.createNewSale(currentUserId, currentUserName);
         
         // Clear UI
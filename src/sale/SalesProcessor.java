@@ -4,7 +4,12 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import database.Page;
+import database.TransactionContext;
 import product.*;
 import stock.*;
 import login.User;
@@ -13,7 +18,6 @@ import login.UserRole;
 public class SalesProcessor {
     private SaleDAO saleDAO;
     private ProductDAO productDAO;
-    private StockMovementDAO stockMovementDAO;
     private Connection connection;
     private User currentUser;
     
@@ -21,7 +25,6 @@ public class SalesProcessor {
         this.connection = connection;
         this.saleDAO = new SaleDAO(connection);
         this.productDAO = new ProductDAO(connection);
-        this.stockMovementDAO = new StockMovementDAO(connection);
     }
     
     // Process sale and deduct inventory
@@ -30,53 +33,46 @@ public class SalesProcessor {
             // Validate sale
             validateSale(sale);
             
-            // Check stock availability
-            checkStockAvailability(sale);
-            
             // If no DB connection, use test mode
             if (connection == null) {
                 return processSaleTestMode(sale);
             }
 
-            // Start transaction
-            connection.setAutoCommit(false);
-
+            // Before the transaction: a receipt number lease commits on its own
             try {
+                sale.ensureReceiptNumber();
+            } catch (SQLException e) {
+                throw new Exception("Failed to process sale: " + e.getMessage(), e);
+            }
+
+            // Start transaction: every DAO call below shares this connection
+            try (TransactionContext transaction = TransactionContext.begin(connection)) {
                 // Save sale to database
                 int saleId = saleDAO.saveSale(sale);
                 sale.setSaleId(saleId);
 
-                // Deduct inventory for each item
-                for (SaleItem item : sale.getItems()) {
-                    deductInventory(item, saleId);
-                }
+                // Deduct inventory for every line in one conditional batch
+                deductInventory(sale, saleId);
 
-                // Mark sale as completed
+                // Mark sale as completed (also adds it to the daily rollup and today's counters)
                 sale.setCompleted(true);
                 saleDAO.updateSaleStatus(saleId, Sale.STATUS_COMPLETED, true);
+                
+                // The deduction above now accounts for the cart's reserved units
+                TransactionContext.afterCommit(sale::consumeReservations);
 
-                // Commit transaction
-                connection.commit();
+                // Commit transaction (closing without commit rolls back)
+                transaction.commit();
 
                 // Log successful sale
                 logSaleTransaction(sale);
 
                 return sale;
 
+            } catch (InsufficientStockException e) {
+                throw new Exception(describeShortage(sale, e), e);
             } catch (Exception e) {
-                // Rollback on error
-                if (connection != null) {
-                    try {
-                        connection.rollback();
-                    } catch (SQLException ex) {
-                        // Ignore rollback error
-                    }
-                }
                 throw new Exception("Failed to process sale: " + e.getMessage(), e);
-            } finally {
-                if (connection != null) {
-                    connection.setAutoCommit(true);
-                }
             }
             
         } catch (SQLException e) {
@@ -85,7 +81,10 @@ public class SalesProcessor {
     }
     
     // Test mode processing
-    private Sale processSaleTestMode(Sale sale) {
+    private Sale processSaleTestMode(Sale sale) throws Exception {
+        // No conditional update here, so check stock up front
+        checkStockAvailability(sale);
+        
         int mockSaleId = (int) (Math.random() * 100000);
         sale.setSaleId(mockSaleId);
         
@@ -94,10 +93,25 @@ public class SalesProcessor {
         }
         
         sale.setCompleted(true);
+        sale.consumeReservations();
+        SalesTelemetry.getInstance().recordSale(sale);
         logSaleTransaction(sale);
         return sale;
     }
     
+    // Check stock availability (test mode; the database path relies on ProductDAO.deductStock)
+    private void checkStockAvailability(Sale sale) throws Exception {
+        for (SaleItem item : sale.getItems()) {
+            int availableStock = productDAO.getProductStockLevel(item.getProductId());
+            
+            if (availableStock < item.getQuantity()) {
+                throw new Exception(String.format(
+                    "Insufficient stock for %s. Available: %d, Requested: %d",
+                    item.getProductName(), availableStock, item.getQuantity()));
+            }
+        }
+    }
+    
     // Validate sale before processing
     private void validateSale(Sale sale) throws Exception {
         if (sale == null) {
@@ -128,56 +142,44 @@ public class SalesProcessor {
         }
     }
     
-    // Check stock availability
-    private void checkStockAvailability(Sale sale) throws Exception {
+    // Deduct inventory for all sale items; oversell is detected by the conditional update
+    private void deductInventory(Sale sale, int saleId) throws SQLException {
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
         for (SaleItem item : sale.getItems()) {
-            int availableStock = productDAO.getProductStockLevel(item.getProductId());
-            
-            if (availableStock < item.getQuantity()) {
-                throw new Exception(String.format(
-                    "Insufficient stock for %s. Available: %d, Requested: %d",
-                    item.getProductName(), availableStock, item.getQuantity()));
-            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
-    }
-    
-    // Deduct inventory for a sale item
-    private void deductInventory(SaleItem item, int saleId) throws SQLException {
-        // Get current stock
-        int previousQuantity = productDAO.getProductStockLevel(item.getProductId());
         
-        // Update product quantity
-        boolean updated = productDAO.updateProductQuantity(item.getProductId(), -item.getQuantity());
+        List<ProductDAO.StockDeduction> deductions = productDAO.deductStock(quantities);
         
-        if (!updated && connection != null) {
-            throw new SQLException("Failed to update product quantity");
-        }
-        
-        // Get new stock level
-        int newQuantity = productDAO.getProductStockLevel(item.getProductId());
-        
-        // Create stock movement record
-        if (stockMovementDAO != null) {
+        // Stock movement records are written in the background once the sale commits
+        StockMovementJournal journal = StockMovementJournal.getInstance();
+        for (ProductDAO.StockDeduction deduction : deductions) {
             StockMovement movement = new StockMovement();
-            movement.setProductId(item.getProductId());
+            movement.setProductId(deduction.getProductId());
             movement.setRelatedId(saleId);
             movement.setMovementType("SALE");
-            movement.setQuantityChanged(-item.getQuantity());
-            movement.setPreviousQuantity(previousQuantity);
-            movement.setNewQuantity(newQuantity);
+            movement.setQuantityChanged(-deduction.getQuantity());
+            movement.setPreviousQuantity(deduction.getPreviousQuantity());
+            movement.setNewQuantity(deduction.getNewQuantity());
             movement.setReason("Sale transaction");
-            movement.setUserId(item.getSaleId()); // Using saleId as user placeholder
-            
-            try {
-                stockMovementDAO.saveStockMovement(movement);
-            } catch (Exception e) {
-                // Log but don't fail sale if stock movement fails
-                System.out.println("Warning: Failed to log stock movement: " + e.getMessage());
+            movement.setUserId(sale.getUserId());
+            journal.record(movement);
+        }
+    }
+    
+    private String describeShortage(Sale sale, InsufficientStockException e) {
+        String productName = "product ID " + e.getProductId();
+        for (SaleItem item : sale.getItems()) {
+            if (item.getProductId() == e.getProductId()) {
+                productName = item.getProductName();
+                break;
             }
         }
+        return String.format("Insufficient stock for %s. Available: %d, Requested: %d",
+            productName, e.getAvailable(), e.getRequested());
     }
     
-    // Get today's sales statistics
+    // Get today's sales statistics from the database (reports; the live panels read SalesTelemetry)
     public SaleDAO.SalesStatistics getTodayStatistics() throws Exception {
         try {
             LocalDate today = LocalDate.now();
@@ -213,6 +215,35 @@ public class SalesProcessor {
         }
     }
     
+    // Get one page of sales history (newest first)
+    public Page<Sale> getSalesPage(Page.Cursor after, int limit) throws Exception {
+        try {
+            return saleDAO.getSalesPage(after, limit);
+        } catch (SQLException e) {
+            // Return empty page for test mode
+            return Page.empty();
+        }
+    }
+    
+    // Get one page of sales history starting at a row offset
+    public Page<Sale> getSalesPageAt(int offset, int limit) throws Exception {
+        try {
+            return saleDAO.getSalesPageAt(offset, limit);
+        } catch (SQLException e) {
+            // Return empty page for test mode
+            return Page.empty();
+        }
+    }
+    
+    // Count all sales
+    public int getSalesCount() throws Exception {
+        try {
+            return saleDAO.getSalesCount();
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+    
     // Get sale by ID
     public Sale getSaleById(int saleId) throws Exception {
         try {
@@ -244,10 +275,16 @@ public class SalesProcessor {
                 quantity,
                 product.getPrice()
             );
-            sale.addItem(item);
-            
-            // Process sale
-            return processSale(sale);
+            try {
+                sale.addItem(item);
+                
+                // Process sale
+                return processSale(sale);
+            } catch (Exception e) {
+                // Nobody else holds this cart, so give its stock back now
+                sale.releaseReservations();
+                throw e;
+            }
             
         } catch (Exception e) {
             throw new Exception("Quick sale failed: " + e.getMessage(), e);
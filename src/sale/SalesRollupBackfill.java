@@ -0,0 +1,98 @@
+package sale;
+
+import database.DBManager;
+import database.TransactionContext;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Backfill of daily_sales_rollup from sales history - SRS 2.1 Process Sale
+ *
+ * Rebuilds the rollup from the first sale up to today in windows of
+ * WINDOW_DAYS days, each in its own short transaction, so live sales are
+ * never held up for long. Rebuilding is idempotent: a window's rows are
+ * replaced, not added to, so the job can be rerun or interrupted safely.
+ *
+ * startIfEmpty() runs it once in the background when the rollup has never
+ * been filled (first start after upgrading an existing database).
+ */
+public class SalesRollupBackfill {
+    private static final int WINDOW_DAYS = 31;
+
+    private static boolean started = false;
+
+    private final DailySalesRollupDAO rollupDAO = new DailySalesRollupDAO();
+
+    public SalesRollupBackfill() {}
+
+    /**
+     * Rebuilds every day from the first recorded sale up to today.
+     *
+     * @return Number of days with completed sales
+     */
+    public int backfill() throws SQLException {
+        LocalDate first = firstSaleDay();
+        return first != null ? backfill(first, LocalDate.now()) : 0;
+    }
+
+    /**
+     * Rebuilds the days [firstDay, lastDay].
+     *
+     * @return Number of days with completed sales
+     */
+    public int backfill(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        int days = 0;
+        for (LocalDate from = firstDay; !from.isAfter(lastDay); from = from.plusDays(WINDOW_DAYS)) {
+            LocalDate to = from.plusDays(WINDOW_DAYS - 1);
+            if (to.isAfter(lastDay)) {
+                to = lastDay;
+            }
+            try (TransactionContext transaction = TransactionContext.begin()) {
+                days += rollupDAO.rebuild(from, to);
+                transaction.commit();
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Starts a background backfill if the rollup is still empty. Safe to
+     * call more than once; only the first call has an effect.
+     */
+    public static synchronized void startIfEmpty() {
+        if (started || !DBManager.isConnected()) {
+            return;
+        }
+        started = true;
+        Thread thread = new Thread(() -> {
+            try {
+                SalesRollupBackfill job = new SalesRollupBackfill();
+                if (job.rollupDAO.isEmpty()) {
+                    long begin = System.currentTimeMillis();
+                    int days = job.backfill();
+                    System.out.println("Sales rollup backfilled: " + days + " days in " +
+                            (System.currentTimeMillis() - begin) + " ms");
+                }
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Error backfilling sales rollup: " + e.getMessage());
+            }
+        }, "sales-rollup-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private LocalDate firstSaleDay() throws SQLException {
+        try (Connection c = DBManager.getConnection();
+             Statement stmt = c.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(sale_datetime) FROM sales")) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                return rs.getTimestamp(1).toLocalDateTime().toLocalDate();
+            }
+            return null;
+        }
+    }
+}
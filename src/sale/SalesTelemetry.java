@@ -0,0 +1,163 @@
+package sale;
+
+import database.DBManager;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live "today" sales counters for the dashboards - SRS 2.1 Process Sale
+ *
+ * The dashboard timer and the sales panel ask for today's count, revenue
+ * and items on every refresh. Instead of querying MySQL each time, this
+ * keeps the figures in memory:
+ *
+ * - Counters are LongAdder/DoubleAdder, so tills recording sales never
+ *   contend on a single field; reading them is a sum over a few cells and
+ *   allocates nothing
+ * - SaleDAO adds or removes a sale after the transaction that completes,
+ *   refunds, cancels or deletes it has committed, next to its rollup update
+ * - start() seeds the counters from daily_sales_rollup, so sales made
+ *   before the application started are included
+ * - At midnight a timer swaps in a fresh set of counters; until it fires,
+ *   reads already return zero once the day has ended
+ *
+ * Only sales processed by this application after startup are added, so a
+ * second terminal's sales appear at the next start. Reports keep reading
+ * the database.
+ */
+public class SalesTelemetry {
+    private static SalesTelemetry instance;
+    private static boolean started = false;
+
+    private volatile Day current = new Day(LocalDate.now());
+    private final Timer rolloverTimer = new Timer("sales-telemetry", true);
+
+    private SalesTelemetry() {
+        scheduleRollover();
+    }
+
+    public static synchronized SalesTelemetry getInstance() {
+        if (instance == null) {
+            instance = new SalesTelemetry();
+        }
+        return instance;
+    }
+
+    /**
+     * Seeds today's counters from the database. Safe to call more than
+     * once; only the first call has an effect.
+     */
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        SalesTelemetry telemetry = getInstance();
+        if (!DBManager.isConnected()) {
+            return;
+        }
+        try {
+            telemetry.seed(LocalDate.now());
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error seeding sales telemetry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a committed sale to today's counters. Sales dated on an earlier
+     * day are ignored.
+     */
+    public void recordSale(Sale sale) {
+        applySale(sale.getSaleDateTime().toLocalDate(), 1, sale.getTotalItems(), sale.getTotalAmount());
+    }
+
+    /**
+     * Adds (sign = 1) or removes (sign = -1) one committed sale, mirroring
+     * DailySalesRollupDAO.applySale. Sales dated on an earlier day are ignored.
+     */
+    public void applySale(LocalDate saleDay, int sign, long items, double revenue) {
+        Day day = current;
+        if (saleDay.isAfter(day.date)) {
+            day = rollOver(saleDay);
+        }
+        if (!saleDay.equals(day.date)) {
+            return;
+        }
+        day.sales.add(sign);
+        day.items.add(sign * items);
+        day.revenue.add(sign * revenue);
+    }
+
+    public long getTodaySaleCount() {
+        Day day = current;
+        return day.isOver() ? 0 : day.sales.sum();
+    }
+
+    public long getTodayItemCount() {
+        Day day = current;
+        return day.isOver() ? 0 : day.items.sum();
+    }
+
+    public double getTodayRevenue() {
+        Day day = current;
+        return day.isOver() ? 0 : day.revenue.sum();
+    }
+
+    // Replaces the counters with the rollup's totals; runs before tills start selling
+    private void seed(LocalDate date) throws SQLException {
+        SaleDAO.SalesStatistics totals = new DailySalesRollupDAO().getStatistics(date, date);
+        Day seeded = new Day(date);
+        seeded.sales.add(totals.getTotalSales());
+        seeded.items.add(totals.getTotalItems());
+        seeded.revenue.add(totals.getTotalRevenue());
+        current = seeded;
+    }
+
+    private synchronized Day rollOver(LocalDate date) {
+        if (current.date.isBefore(date)) {
+            current = new Day(date);
+        }
+        return current;
+    }
+
+    // One-shot task per day, so DST changes do not shift the rollover
+    private void scheduleRollover() {
+        long delay = Math.max(0, current.endMillis - System.currentTimeMillis());
+        rolloverTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    rollOver(LocalDate.now());
+                } catch (RuntimeException e) {
+                    System.err.println("Error rolling over sales telemetry: " + e.getMessage());
+                } finally {
+                    scheduleRollover();
+                }
+            }
+        }, delay + 1000);
+    }
+
+    // Counters of one calendar day
+    private static class Day {
+        final LocalDate date;
+        final long endMillis;
+        final LongAdder sales = new LongAdder();
+        final LongAdder items = new LongAdder();
+        final DoubleAdder revenue = new DoubleAdder();
+
+        Day(LocalDate date) {
+            this.date = date;
+            this.endMillis = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        boolean isOver() {
+            return System.currentTimeMillis() >= endMillis;
+        }
+    }
+}
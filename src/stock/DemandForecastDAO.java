@@ -0,0 +1,144 @@
+package stock;
+
+import database.DBManager;
+import database.StatementShapes;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistence for demand_forecasts, the compact per-product state kept by
+ * DemandForecaster.
+ */
+public class DemandForecastDAO {
+    // Rows per multi-row upsert in saveStates()
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Receives SALE movements one at a time from streamSalesAfter().
+     */
+    interface SaleHandler {
+        void sale(int movementId, int productId, int units, LocalDate day);
+    }
+
+    public DemandForecastDAO() {}
+
+    Map<Integer, DemandForecaster.DemandState> loadStates() throws SQLException {
+        Map<Integer, DemandForecaster.DemandState> states = new HashMap<>();
+        String sql = "SELECT * FROM demand_forecasts";
+        try (Connection c = DBManager.getConnection();
+             Statement stmt = c.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                DemandForecaster.DemandState state = new DemandForecaster.DemandState();
+                state.smoothedDaily = rs.getDouble("smoothed_daily");
+                state.smoothedVariance = rs.getDouble("smoothed_variance");
+                state.observedDays = rs.getInt("observed_days");
+                Date openDay = rs.getDate("open_day");
+                state.openDay = openDay != null ? openDay.toLocalDate() : null;
+                state.openDayUnits = rs.getInt("open_day_units");
+                states.put(rs.getInt("product_id"), state);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * @return Highest movement ID already folded into the saved state
+     */
+    int getWatermark() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(last_movement_id), 0) FROM demand_forecasts";
+        try (Connection c = DBManager.getConnection();
+             Statement stmt = c.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Streams the SALE movements with an ID above the watermark, in ID order.
+     *
+     * Movement IDs are assigned at insert, not at commit, so a lower ID can
+     * still become visible after a higher one has been read. Only the IDs
+     * below the first movement younger than lagSeconds (by the database
+     * clock) are returned; that movement and everything after it is left
+     * for a later call. The handled IDs therefore always form a contiguous
+     * run above the watermark, and the highest of them is a safe new
+     * watermark as long as no movement commits more than lagSeconds after
+     * its timestamp.
+     *
+     * @return Number of movements handled
+     */
+    int streamSalesAfter(int watermark, int lagSeconds, SaleHandler handler) throws SQLException {
+        String sql = "SELECT movement_id, product_id, quantity_changed, timestamp FROM stock_movements " +
+                "WHERE movement_id > ? AND movement_type = 'SALE' " +
+                "AND movement_id < COALESCE((SELECT MIN(y.movement_id) FROM stock_movements y " +
+                "    WHERE y.movement_id > ? AND y.timestamp >= NOW() - INTERVAL ? SECOND), ~0) " +
+                "ORDER BY movement_id";
+        int rows = 0;
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            pstmt.setInt(1, watermark);
+            pstmt.setInt(2, watermark);
+            pstmt.setInt(3, lagSeconds);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.sale(rs.getInt(1), rs.getInt(2), -rs.getInt(3),
+                            rs.getTimestamp(4).toLocalDateTime().toLocalDate());
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Upserts the given product states, stamping each with the watermark.
+     */
+    void saveStates(Map<Integer, DemandForecaster.DemandState> states, Collection<Integer> productIds,
+                    int watermark) throws SQLException {
+        List<Integer> ids = new ArrayList<>(productIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (Connection c = DBManager.getConnection()) {
+            for (int from = 0; from < ids.size(); ) {
+                int size = StatementShapes.chunkSize(ids.size() - from, BATCH_SIZE);
+                List<Integer> chunk = ids.subList(from, from + size);
+                from += size;
+                StringBuilder sql = new StringBuilder("INSERT INTO demand_forecasts (product_id, smoothed_daily, " +
+                        "smoothed_variance, observed_days, open_day, open_day_units, last_movement_id) VALUES ");
+                sql.append(StatementShapes.repeat("(?, ?, ?, ?, ?, ?, ?)", size));
+                sql.append(" ON DUPLICATE KEY UPDATE smoothed_daily = VALUES(smoothed_daily), " +
+                        "smoothed_variance = VALUES(smoothed_variance), observed_days = VALUES(observed_days), " +
+                        "open_day = VALUES(open_day), open_day_units = VALUES(open_day_units), " +
+                        "last_movement_id = VALUES(last_movement_id)");
+                try (PreparedStatement pstmt = c.prepareStatement(sql.toString())) {
+                    int index = 1;
+                    for (int productId : chunk) {
+                        DemandForecaster.DemandState state = states.get(productId);
+                        pstmt.setInt(index++, productId);
+                        pstmt.setDouble(index++, state.smoothedDaily);
+                        pstmt.setDouble(index++, state.smoothedVariance);
+                        pstmt.setInt(index++, state.observedDays);
+                        if (state.openDay != null) {
+                            pstmt.setDate(index++, Date.valueOf(state.openDay));
+                        } else {
+                            pstmt.setNull(index++, Types.DATE);
+                        }
+                        pstmt.setInt(index++, state.openDayUnits);
+                        pstmt.setInt(index++, watermark);
+                    }
+                    pstmt.executeUpdate();
+                }
+            }
+        }
+    }
+}
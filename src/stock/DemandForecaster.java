@@ -0,0 +1,277 @@
+package stock;
+
+import database.DBManager;
+import database.TransactionContext;
+import product.Product;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Demand forecasting for reordering - SRS 1.5 Low Stock Alerts
+ *
+ * Keeps an exponentially weighted moving average (and variance) of each
+ * product's daily SALE units. The state is a handful of numbers per product,
+ * held in memory and saved to demand_forecasts together with the highest
+ * movement ID it includes, so refresh() only reads the SALE movements
+ * recorded since the last run and never rescans history. Days with no
+ * sales count as zero demand.
+ *
+ * Movement IDs are not committed in order, so refresh() leaves movements
+ * younger than nardo.forecast.lagSeconds for the next run (see
+ * DemandForecastDAO.streamSalesAfter) and the watermark never passes a
+ * movement that could still appear below it.
+ *
+ * From the forecast:
+ *   reorder point    = daily demand x lead time + safety stock
+ *   safety stock     = z x daily std. deviation x sqrt(lead time)
+ *   reorder quantity = enough to cover lead time + review period, plus
+ *                      safety stock, minus what is on hand
+ *
+ * Tuning (system properties):
+ *   nardo.forecast.alpha         smoothing factor (default 0.2)
+ *   nardo.forecast.leadTimeDays  supplier lead time (default 3)
+ *   nardo.forecast.reviewDays    days of stock an order should cover (default 7)
+ *   nardo.forecast.serviceZ      safety stock factor (default 1.65, ~95%)
+ *   nardo.forecast.refreshMs     refresh interval (default 15 minutes)
+ *   nardo.forecast.lagSeconds    age before a movement is folded in (default 300)
+ */
+public class DemandForecaster {
+    private static final double ALPHA = Double.parseDouble(System.getProperty("nardo.forecast.alpha", "0.2"));
+    private static final int LEAD_TIME_DAYS = Integer.getInteger("nardo.forecast.leadTimeDays", 3);
+    private static final int REVIEW_DAYS = Integer.getInteger("nardo.forecast.reviewDays", 7);
+    private static final double SERVICE_Z = Double.parseDouble(System.getProperty("nardo.forecast.serviceZ", "1.65"));
+    private static final long REFRESH_INTERVAL_MS = Long.getLong("nardo.forecast.refreshMs", 15 * 60 * 1000L);
+    private static final int LAG_SECONDS = Integer.getInteger("nardo.forecast.lagSeconds", 300);
+    private static final int MAX_EMPTY_DAYS = 120;
+
+    private static DemandForecaster instance;
+    private static Timer refreshTimer;
+
+    private final DemandForecastDAO forecastDAO = new DemandForecastDAO();
+    private final Map<Integer, DemandState> states = new HashMap<>();
+    private int watermark = 0;
+    private boolean loaded = false;
+
+    private DemandForecaster() {}
+
+    public static synchronized DemandForecaster getInstance() {
+        if (instance == null) {
+            instance = new DemandForecaster();
+        }
+        return instance;
+    }
+
+    /**
+     * Refreshes now and then every nardo.forecast.refreshMs. Safe to call
+     * more than once; only the first call has an effect.
+     */
+    public static synchronized void startUpdates() {
+        if (refreshTimer != null) {
+            return;
+        }
+        DemandForecaster forecaster = getInstance();
+        refreshTimer = new Timer("demand-forecaster", true);
+        refreshTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    forecaster.refresh();
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("Error updating demand forecasts: " + e.getMessage());
+                }
+            }
+        }, 0, REFRESH_INTERVAL_MS);
+    }
+
+    /**
+     * Folds the SALE movements recorded since the last refresh into the
+     * state and saves the products that changed.
+     *
+     * @return Number of movements applied
+     */
+    public synchronized int refresh() throws SQLException {
+        if (!loaded) {
+            states.putAll(forecastDAO.loadStates());
+            watermark = forecastDAO.getWatermark();
+            loaded = true;
+        }
+        if (DBManager.isConnected()) {
+            StockMovementJournal.getInstance().flush(); // Barrier: this process's movements are stored
+        }
+
+        // Sales are folded into copies; the live states only change once the copies are saved
+        Map<Integer, DemandState> updated = new HashMap<>();
+        int[] highest = {watermark};
+        int applied = forecastDAO.streamSalesAfter(watermark, LAG_SECONDS, (movementId, productId, units, day) -> {
+            updated.computeIfAbsent(productId, id -> {
+                DemandState state = states.get(id);
+                return state != null ? state.copy() : new DemandState();
+            }).addSale(day, units);
+            highest[0] = Math.max(highest[0], movementId);
+        });
+        if (applied > 0) {
+            // All chunks in one transaction, so a failure leaves neither the table nor memory half-updated
+            try (TransactionContext transaction = TransactionContext.begin()) {
+                forecastDAO.saveStates(updated, updated.keySet(), highest[0]);
+                if (transaction != null) {
+                    transaction.commit();
+                }
+            }
+            states.putAll(updated);
+            watermark = highest[0];
+        }
+        return applied;
+    }
+
+    /**
+     * @return Forecast for the product as of today, or null if it has never sold
+     */
+    public synchronized Forecast getForecast(int productId) {
+        DemandState state = states.get(productId);
+        return state != null ? state.forecast(productId, LocalDate.now()) : null;
+    }
+
+    /**
+     * @return productId -> forecast as of today for every product with sales history
+     */
+    public synchronized Map<Integer, Forecast> getAllForecasts() {
+        LocalDate today = LocalDate.now();
+        Map<Integer, Forecast> forecasts = new HashMap<>(states.size() * 2);
+        for (Map.Entry<Integer, DemandState> entry : states.entrySet()) {
+            forecasts.put(entry.getKey(), entry.getValue().forecast(entry.getKey(), today));
+        }
+        return forecasts;
+    }
+
+    /**
+     * @return Stock level at which to reorder, or -1 without sales history
+     */
+    public int getReorderPoint(int productId) {
+        Forecast forecast = getForecast(productId);
+        if (forecast == null) {
+            return -1;
+        }
+        return (int) Math.ceil(forecast.getDailyDemand() * LEAD_TIME_DAYS + safetyStock(forecast));
+    }
+
+    /**
+     * @return Units to order now (0 if above the reorder point), or -1 without sales history
+     */
+    public int getReorderQuantity(Product product) {
+        Forecast forecast = getForecast(product.getProductId());
+        if (forecast == null) {
+            return -1;
+        }
+        if (product.getCurrentQuantity() > getReorderPoint(product.getProductId())) {
+            return 0;
+        }
+        double target = forecast.getDailyDemand() * (LEAD_TIME_DAYS + REVIEW_DAYS) + safetyStock(forecast);
+        return Math.max(0, (int) Math.ceil(target) - product.getCurrentQuantity());
+    }
+
+    private static double safetyStock(Forecast forecast) {
+        return SERVICE_Z * forecast.getDailyStdDev() * Math.sqrt(LEAD_TIME_DAYS);
+    }
+
+    /**
+     * Smoothed demand of one product. Sales accumulate in the open day; when
+     * a later day's sale arrives the open day is folded into the average
+     * and every day in between counts as zero.
+     */
+    static class DemandState {
+        double smoothedDaily;
+        double smoothedVariance;
+        int observedDays;
+        LocalDate openDay;
+        int openDayUnits;
+
+        void addSale(LocalDate day, int units) {
+            if (openDay == null) {
+                openDay = day;
+            } else if (day.isAfter(openDay)) {
+                closeDaysBefore(day);
+                openDay = day;
+                openDayUnits = 0;
+            }
+            // A late sale for an already closed day is counted in the open day
+            openDayUnits += units;
+        }
+
+        // Folds the open day and the empty days up to (not including) day
+        private void closeDaysBefore(LocalDate day) {
+            fold(openDayUnits);
+            // Beyond MAX_EMPTY_DAYS the average has decayed to nothing anyway
+            long emptyDays = Math.min(ChronoUnit.DAYS.between(openDay, day) - 1, MAX_EMPTY_DAYS);
+            for (long i = 0; i < emptyDays; i++) {
+                fold(0);
+            }
+        }
+
+        private void fold(double units) {
+            if (observedDays == 0) {
+                smoothedDaily = units;
+                smoothedVariance = 0;
+            } else {
+                double diff = units - smoothedDaily;
+                smoothedDaily += ALPHA * diff;
+                smoothedVariance = (1 - ALPHA) * (smoothedVariance + ALPHA * diff * diff);
+            }
+            observedDays++;
+        }
+
+        // Forecast as of today, without changing the stored state
+        Forecast forecast(int productId, LocalDate today) {
+            DemandState view = copy();
+            if (view.openDay != null && today.isAfter(view.openDay)) {
+                view.closeDaysBefore(today);
+            }
+            double daily = view.observedDays > 0 ? view.smoothedDaily : view.openDayUnits;
+            return new Forecast(productId, daily, Math.sqrt(view.smoothedVariance), view.observedDays);
+        }
+
+        private DemandState copy() {
+            DemandState copy = new DemandState();
+            copy.smoothedDaily = smoothedDaily;
+            copy.smoothedVariance = smoothedVariance;
+            copy.observedDays = observedDays;
+            copy.openDay = openDay;
+            copy.openDayUnits = openDayUnits;
+            return copy;
+        }
+    }
+
+    /**
+     * Expected daily demand of one product.
+     */
+    public static class Forecast {
+        private final int productId;
+        private final double dailyDemand;
+        private final double dailyStdDev;
+        private final int observedDays;
+
+        public Forecast(int productId, double dailyDemand, double dailyStdDev, int observedDays) {
+            this.productId = productId;
+            this.dailyDemand = dailyDemand;
+            this.dailyStdDev = dailyStdDev;
+            this.observedDays = observedDays;
+        }
+
+        public int getProductId() { return productId; }
+        public double getDailyDemand() { return dailyDemand; }
+        public double getDailyStdDev() { return dailyStdDev; }
+        // Completed days behind the average; small values mean a rough estimate
+        public int getObservedDays() { return observedDays; }
+
+        @Override
+        public String toString() {
+            return String.format("Forecast[product=%d, %.2f/day, sd=%.2f, days=%d]",
+                    productId, dailyDemand, dailyStdDev, observedDays);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package stock;
+
+import database.DBManager;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Point-in-time stock levels - SRS 1.5 Track Stock Movement
+ *
+ * Once a day every product's quantity is copied into stock_snapshots. The
+ * quantity at any past instant is then the nearest snapshot adjusted by the
+ * movements between the snapshot and that instant:
+ *
+ *   - snapshot at or before the instant: snapshot + movements since it
+ *   - only a later snapshot (before history was snapshotted): snapshot -
+ *     movements between the instant and the snapshot
+ *   - no snapshot at all: current quantity - movements since the instant
+ *
+ * so a query reads at most about one day of movements however old the
+ * instant is. Products created after the snapshot used are answered from
+ * the next snapshot, or from their current quantity if there is none yet.
+ *
+ * A snapshot records quantities as of nardo.ledger.snapshotMarginSeconds
+ * (default 300) before it is taken, so sales whose movement was stamped
+ * before taken_at but that commit a little later are still counted.
+ *
+ * Results are only as accurate as stock_movements: quantity changes made
+ * without a movement row are invisible until the next snapshot.
+ */
+public class StockLedger {
+    private static final long SNAPSHOT_INTERVAL_MS = Long.getLong("nardo.ledger.snapshotMs", 24 * 60 * 60 * 1000L);
+    private static final int SNAPSHOT_MARGIN_SECONDS = Integer.getInteger("nardo.ledger.snapshotMarginSeconds", 300);
+    private static Timer snapshotTimer;
+    private static StockLedger instance;
+
+    private final StockSnapshotDAO snapshotDAO = new StockSnapshotDAO();
+
+    private StockLedger() {}
+
+    public static synchronized StockLedger getInstance() {
+        if (instance == null) {
+            instance = new StockLedger();
+        }
+        return instance;
+    }
+
+    /**
+     * Takes today's snapshot if it is missing, then one every
+     * nardo.ledger.snapshotMs (default 24 hours). Safe to call more than
+     * once; only the first call has an effect.
+     */
+    public static synchronized void startSnapshots() {
+        if (snapshotTimer != null) {
+            return;
+        }
+        StockLedger ledger = getInstance();
+        snapshotTimer = new Timer("stock-ledger", true);
+        snapshotTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    if (!ledger.snapshotDAO.hasSnapshot(LocalDate.now())) {
+                        ledger.takeSnapshot();
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("Error checking stock snapshot: " + e.getMessage());
+                }
+            }
+        }, 0);
+        snapshotTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    ledger.takeSnapshot();
+                } catch (SQLException | RuntimeException e) {
+                    // Keep the timer alive; the next run snapshots again
+                    System.err.println("Error taking stock snapshot: " + e.getMessage());
+                }
+            }
+        }, SNAPSHOT_INTERVAL_MS, SNAPSHOT_INTERVAL_MS);
+    }
+
+    /**
+     * Records every product's current quantity as today's snapshot.
+     *
+     * @return Number of products snapshotted
+     */
+    public int takeSnapshot() throws SQLException {
+        // Queued movements must be in the table before the quantities they produced are snapshotted
+        flushJournal();
+        // A movement's timestamp is set before its transaction commits. Snapshotting
+        // as of SNAPSHOT_MARGIN_SECONDS ago leaves time for those to commit; later
+        // movements are subtracted from the current quantity (see StockSnapshotDAO).
+        // TIMESTAMP columns hold whole seconds; taken_at is matched exactly later
+        LocalDateTime takenAt = LocalDateTime.now().withNano(0).minusSeconds(SNAPSHOT_MARGIN_SECONDS);
+        return snapshotDAO.takeSnapshot(takenAt.toLocalDate(), takenAt);
+    }
+
+    /**
+     * @return The product's quantity at the given instant (0 if it did not exist yet)
+     */
+    public int getQuantityAt(int productId, LocalDateTime at) throws SQLException {
+        Integer quantity = quantitiesAt(productId, at).get(productId);
+        return quantity != null ? quantity : 0;
+    }
+
+    /**
+     * @return productId -> quantity at the given instant, for every product that existed then
+     */
+    public Map<Integer, Integer> getCatalogQuantitiesAt(LocalDateTime at) throws SQLException {
+        return quantitiesAt(null, at);
+    }
+
+    private Map<Integer, Integer> quantitiesAt(Integer productId, LocalDateTime at) throws SQLException {
+        flushJournal();
+        List<Integer> only = productId != null ? Collections.singletonList(productId) : null;
+        Map<Integer, Integer> quantities;
+        LocalDateTime snapshot = snapshotDAO.findSnapshotAtOrBefore(at, productId);
+        if (snapshot != null) {
+            quantities = snapshotDAO.rollForward(snapshot, only, at);
+        } else {
+            snapshot = snapshotDAO.findSnapshotAfter(at, productId);
+            if (snapshot == null) {
+                // Nothing snapshotted yet: every product from its current quantity
+                return snapshotDAO.rollBackFromCurrent(only, at);
+            }
+            quantities = snapshotDAO.rollBack(snapshot, only, at);
+        }
+
+        // Products created after that snapshot but before the instant: usually none
+        List<Integer> missing = snapshotDAO.findProductsMissingFrom(snapshot, productId, at);
+        if (missing.isEmpty()) {
+            return quantities;
+        }
+        LocalDateTime later = snapshotDAO.findSnapshotAfter(at, null);
+        if (later != null && !later.equals(snapshot)) {
+            quantities.putAll(snapshotDAO.rollBack(later, missing, at));
+            missing.removeIf(quantities::containsKey);
+        }
+        if (!missing.isEmpty()) {
+            // No later snapshot, so the instant is within the last snapshot interval
+            quantities.putAll(snapshotDAO.rollBackFromCurrent(missing, at));
+        }
+        return quantities;
+    }
+
+    private void flushJournal() {
+        if (DBManager.isConnected()) {
+            StockMovementJournal.getInstance().flush();
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package stock;
 
 import database.DBManager;
+import database.Page;
+import database.StatementShapes;
+import database.TimeRange;
 
 import java.sql.*;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 public class StockMovementDAO {
+    // Rows per multi-row INSERT in saveStockMovements()
+    private static final int BATCH_SIZE = 500;
+
     private Connection connection;
     
     public StockMovementDAO(Connection connection) {
@@ -49,6 +54,57 @@ public class StockMovementDAO {
         }
     }
 
+    /**
+     * Inserts many movements with multi-row INSERT statements (up to
+     * BATCH_SIZE rows each, in the fixed sizes of StatementShapes so the
+     * statement cache is not flooded). Each movement's generated ID is
+     * set. Used by StockMovementJournal's background writer.
+     */
+    public void saveStockMovements(List<StockMovement> movements) throws SQLException {
+        if (movements.isEmpty()) {
+            return;
+        }
+        try (Connection c = DBManager.getConnection()) {
+            for (int from = 0; from < movements.size(); ) {
+                int size = StatementShapes.chunkSize(movements.size() - from, BATCH_SIZE);
+                List<StockMovement> chunk = movements.subList(from, from + size);
+                from += size;
+                String sql = "INSERT INTO stock_movements (product_id, related_id, movement_type, quantity_changed, " +
+                        "previous_quantity, new_quantity, reason, user_id, timestamp) VALUES " +
+                        StatementShapes.repeat("(?, ?, ?, ?, ?, ?, ?, ?, ?)", size);
+                try (PreparedStatement pstmt = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    int index = 1;
+                    for (StockMovement movement : chunk) {
+                        pstmt.setInt(index++, movement.getProductId());
+                        if (movement.getRelatedId() != null) {
+                            pstmt.setInt(index++, movement.getRelatedId());
+                        } else {
+                            pstmt.setNull(index++, Types.INTEGER);
+                        }
+                        pstmt.setString(index++, movement.getMovementType());
+                        pstmt.setInt(index++, movement.getQuantityChanged());
+                        pstmt.setInt(index++, movement.getPreviousQuantity());
+                        pstmt.setInt(index++, movement.getNewQuantity());
+                        pstmt.setString(index++, movement.getReason());
+                        pstmt.setInt(index++, movement.getUserId());
+                        pstmt.setTimestamp(index++, Timestamp.valueOf(movement.getTimestamp()));
+                    }
+                    pstmt.executeUpdate();
+
+                    // MySQL hands out consecutive keys for one multi-row INSERT, in row order
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        for (StockMovement movement : chunk) {
+                            if (!generatedKeys.next()) {
+                                throw new SQLException("Failed to save stock movements, no ID obtained");
+                            }
+                            movement.setMovementId(generatedKeys.getInt(1));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     public List<StockMovement> getMovementsByProduct(int productId) throws SQLException {
         List<StockMovement> movements = new ArrayList<>();
         String sql = "SELECT * FROM stock_movements WHERE product_id = ? ORDER BY timestamp DESC";
@@ -64,13 +120,12 @@ public class StockMovementDAO {
         return movements;
     }
 
-    public List<StockMovement> getMovementsByDateRange(LocalDateTime start, LocalDateTime end) throws SQLException {
+    public List<StockMovement> getMovementsByDateRange(TimeRange range) throws SQLException {
         List<StockMovement> movements = new ArrayList<>();
-        String sql = "SELECT * FROM stock_movements WHERE timestamp BETWEEN ? AND ? ORDER BY timestamp DESC";
+        String sql = "SELECT * FROM stock_movements WHERE " + range.where("timestamp") + " ORDER BY timestamp DESC";
         try (Connection c = DBManager.getConnection();
              PreparedStatement pstmt = c.prepareStatement(sql)) {
-            pstmt.setTimestamp(1, Timestamp.valueOf(start));
-            pstmt.setTimestamp(2, Timestamp.valueOf(end));
+            range.bind(pstmt, 1);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     movements.add(mapResultSetToMovement(rs));
@@ -80,6 +135,45 @@ public class StockMovementDAO {
         return movements;
     }
 
+    /**
+     * Receives movement rows one at a time from streamMovementsWithProductNames().
+     */
+    public interface MovementRowHandler {
+        void handle(StockMovement movement, String productName);
+    }
+
+    /**
+     * Streams the movements in a time range, newest first, joined with their
+     * product names, handing each row to the handler as it arrives.
+     *
+     * The statement is forward-only, read-only with fetch size
+     * Integer.MIN_VALUE, which makes MySQL Connector/J stream rows instead
+     * of buffering the whole result, so memory stays flat however long the
+     * range is. The connection cannot run other statements until the
+     * stream finishes, so the handler must not query the database.
+     *
+     * @return Number of rows handled
+     */
+    public int streamMovementsWithProductNames(TimeRange range, MovementRowHandler handler) throws SQLException {
+        String sql = "SELECT m.*, p.name AS product_name FROM stock_movements m " +
+                "LEFT JOIN products p ON p.product_id = m.product_id " +
+                "WHERE " + range.where("m.timestamp") + " ORDER BY m.timestamp DESC, m.movement_id DESC";
+        int rows = 0;
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            range.bind(pstmt, 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(mapResultSetToMovement(rs), rs.getString("product_name"));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
     public List<StockMovement> getMovementsByUser(int userId) throws SQLException {
         List<StockMovement> movements = new ArrayList<>();
         String sql = "SELECT * FROM stock_movements WHERE user_id = ? ORDER BY timestamp DESC";
@@ -108,6 +202,68 @@ public class StockMovementDAO {
         return movements;
     }
 
+    /**
+     * One page of movements, newest first, ordered by (timestamp, movement_id) descending.
+     *
+     * @param after Cursor of the previous page's last row, or null for the first page
+     * @param limit Maximum number of movements in the page
+     */
+    public Page<StockMovement> getMovementsPage(Page.Cursor after, int limit) throws SQLException {
+        return getMovementsPage(null, null, after, limit);
+    }
+
+    /**
+     * One page of movements of one type and/or by one user, in the same
+     * order as getMovementsPage(). A type filter is served by
+     * idx_movement_type and a user filter by idx_user, both of which end in
+     * (timestamp, movement_id), so each page is an index range read.
+     *
+     * @param movementType Movement type to keep, or null for all types
+     * @param userId       User to keep, or null for all users
+     */
+    public Page<StockMovement> getMovementsPage(String movementType, Integer userId,
+                                                Page.Cursor after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM stock_movements");
+        String joiner = " WHERE ";
+        if (movementType != null) {
+            sql.append(joiner).append("movement_type = ?");
+            joiner = " AND ";
+        }
+        if (userId != null) {
+            sql.append(joiner).append("user_id = ?");
+            joiner = " AND ";
+        }
+        if (after != null) {
+            sql.append(joiner).append("(timestamp < ? OR (timestamp = ? AND movement_id < ?))");
+        }
+        sql.append(" ORDER BY timestamp DESC, movement_id DESC LIMIT ?");
+
+        List<StockMovement> movements = new ArrayList<>();
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql.toString())) {
+            int index = 1;
+            if (movementType != null) {
+                pstmt.setString(index++, movementType);
+            }
+            if (userId != null) {
+                pstmt.setInt(index++, userId);
+            }
+            if (after != null) {
+                pstmt.setObject(index++, after.getSortKey());
+                pstmt.setObject(index++, after.getSortKey());
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, limit + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    movements.add(mapResultSetToMovement(rs));
+                }
+            }
+        }
+        return Page.of(movements, limit,
+                m -> new Page.Cursor(Timestamp.valueOf(m.getTimestamp()), m.getMovementId()));
+    }
+
     public int getTotalMovementsCount() throws SQLException {
         String sql = "SELECT COUNT(*) FROM stock_movements";
         try (Connection c = DBManager.getConnection();
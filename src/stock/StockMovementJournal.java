@@ -0,0 +1,268 @@
+package stock;
+
+import database.DBManager;
+import database.TransactionContext;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind journal for stock movements - SRS 1.5 Track Stock Movement
+ *
+ * Callers hand movements to record() instead of inserting them one by one.
+ * Movements wait in a bounded queue and a single background writer inserts
+ * them in batches (StockMovementDAO.saveStockMovements), flushing when a
+ * batch fills up or when the flush interval passes, whichever comes first.
+ * A sale no longer spends a round trip per line item on its audit rows.
+ *
+ * - record() queues a movement only after the enclosing transaction commits,
+ *   so a rolled-back sale leaves no movement behind
+ * - When the queue is full the caller waits up to the enqueue timeout, and
+ *   if it is still full writes the movement itself (back-pressure without
+ *   dropping audit rows)
+ * - A failed batch is retried, then written row by row so one bad row does
+ *   not lose the rest
+ * - DBManager.closeConnection() flushes whatever is still queued
+ * - flush() is a barrier: the batch the writer is still filling is kept
+ *   under the write lock, so when flush() returns every movement queued
+ *   before it was called is in the database
+ *
+ * Movements become visible to readers up to one flush interval after the
+ * change that produced them. Queued movements have no movementId.
+ *
+ * Tuning (system properties):
+ *   nardo.journal.capacity      queue size (default 10000)
+ *   nardo.journal.batchSize     rows per flush (default 200)
+ *   nardo.journal.flushMs       maximum delay before a flush (default 500)
+ *   nardo.journal.enqueueWaitMs wait for a full queue (default 2000)
+ */
+public class StockMovementJournal {
+    private static final int CAPACITY = Integer.getInteger("nardo.journal.capacity", 10000);
+    private static final int BATCH_SIZE = Integer.getInteger("nardo.journal.batchSize", 200);
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("nardo.journal.flushMs", 500L);
+    private static final long ENQUEUE_WAIT_MS = Long.getLong("nardo.journal.enqueueWaitMs", 2000L);
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    private static StockMovementJournal instance;
+
+    private final BlockingQueue<StockMovement> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final StockMovementDAO stockMovementDAO = new StockMovementDAO(null);
+    // Guards pending and every database write; the writer gives it up only while waiting
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition workAvailable = writeLock.newCondition();
+    private final List<StockMovement> pending = new ArrayList<>(BATCH_SIZE);
+    private long pendingSince = 0;
+    private volatile boolean writerIdle = false;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Metrics
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder callerWrites = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    private StockMovementJournal() {
+        writer = new Thread(this::writeLoop, "stock-movement-journal");
+        writer.setDaemon(true);
+        writer.start();
+        DBManager.addShutdownHook(this::shutdown);
+    }
+
+    public static synchronized StockMovementJournal getInstance() {
+        if (instance == null) {
+            instance = new StockMovementJournal();
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a movement once the current transaction (if any) commits.
+     * Ignored in test mode, when there is no database to write to.
+     */
+    public void record(StockMovement movement) {
+        if (!TransactionContext.isActive() && DBManager.isTestMode()) {
+            return;
+        }
+        TransactionContext.afterCommit(() -> enqueue(movement));
+    }
+
+    /**
+     * Queues a movement immediately, applying back-pressure when the queue is full.
+     */
+    public void enqueue(StockMovement movement) {
+        boolean queued = false;
+        if (running) {
+            try {
+                queued = queue.offer(movement, ENQUEUE_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        enqueued.increment();
+        if (queued) {
+            maxDepth.accumulateAndGet(queue.size(), Math::max);
+            if (writerIdle) {
+                wakeWriter();
+            }
+            return;
+        }
+        // Queue full (or journal shut down): write on the caller's thread
+        callerWrites.increment();
+        List<StockMovement> single = new ArrayList<>(1);
+        single.add(movement);
+        writeLock.lock();
+        try {
+            write(single);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything queued so far, including the batch the writer is
+     * still filling, on the calling thread. When it returns, every movement
+     * queued before the call is in the database.
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            do {
+                queue.drainTo(pending, BATCH_SIZE - pending.size());
+                if (!pending.isEmpty()) {
+                    writePending();
+                }
+            } while (!queue.isEmpty());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the writer and flushes the remaining movements. Anything
+     * enqueued afterwards is written on the caller's thread.
+     */
+    public void shutdown() {
+        running = false;
+        wakeWriter();
+        try {
+            writer.join(FLUSH_INTERVAL_MS * 4);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public int getQueueDepth() { return queue.size(); }
+    public int getCapacity() { return CAPACITY; }
+    public int getMaxQueueDepth() { return maxDepth.get(); }
+    public long getEnqueuedCount() { return enqueued.sum(); }
+    public long getWrittenCount() { return written.sum(); }
+    public long getBatchCount() { return batches.sum(); }
+    public long getFailedCount() { return failed.sum(); }
+    public long getCallerWriteCount() { return callerWrites.sum(); }
+
+    // ---- Writer ----
+
+    // Holds writeLock except while waiting, so pending is never out of flush()'s reach
+    private void writeLoop() {
+        writeLock.lock();
+        try {
+            while (running) {
+                queue.drainTo(pending, BATCH_SIZE - pending.size());
+                long now = System.currentTimeMillis();
+                try {
+                    if (pending.isEmpty()) {
+                        writerIdle = true;
+                        if (queue.isEmpty()) {
+                            workAvailable.await(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                        }
+                        writerIdle = false;
+                        continue;
+                    }
+                    if (pendingSince == 0) {
+                        pendingSince = now;
+                    }
+                    // Give a burst (e.g. a multi-item sale) time to fill the batch
+                    long remaining = pendingSince + FLUSH_INTERVAL_MS - now;
+                    if (pending.size() < BATCH_SIZE && remaining > 0) {
+                        workAvailable.await(remaining, TimeUnit.MILLISECONDS);
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    // Keep going; shutdown() clears running
+                    writerIdle = false;
+                    continue;
+                }
+                writePending();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void wakeWriter() {
+        writeLock.lock();
+        try {
+            workAvailable.signal();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Called with writeLock held
+    private void writePending() {
+        write(pending);
+        pending.clear();
+        pendingSince = 0;
+    }
+
+    // Called with writeLock held
+    private void write(List<StockMovement> batch) {
+        for (int attempt = 1; attempt <= MAX_BATCH_ATTEMPTS; attempt++) {
+            try {
+                stockMovementDAO.saveStockMovements(batch);
+                written.add(batch.size());
+                batches.increment();
+                return;
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Error writing stock movement batch (attempt " + attempt + "): " +
+                        e.getMessage());
+                if (attempt < MAX_BATCH_ATTEMPTS && !sleepBeforeRetry(attempt)) {
+                    break;
+                }
+            }
+        }
+        // Isolate the bad rows
+        for (StockMovement movement : batch) {
+            try {
+                stockMovementDAO.saveStockMovement(movement);
+                written.increment();
+            } catch (SQLException | RuntimeException e) {
+                failed.increment();
+                System.err.println("Dropped stock movement " + movement.getMovementType() + " for product " +
+                        movement.getProductId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(100L * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,13 +1,24 @@
 // File: StockMovementService.java
 package stock;
 
+import database.Page;
+import database.TimeRange;
+import database.TransactionContext;
 import product.ProductDAO;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class StockMovementService {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
     private StockMovementDAO stockMovementDAO;
     private ProductDAO productDAO;
     private Connection connection;
@@ -46,8 +57,8 @@ public class StockMovementService {
         // Update product quantity first
         productDAO.updateProductQuantity(productId, -quantitySold);
 
-        // Then record the movement
-        stockMovementDAO.createStockMovement(movement);
+        // Then record the movement (written in the background)
+        StockMovementJournal.getInstance().record(movement);
 
         return movement;
     }
@@ -76,12 +87,62 @@ public class StockMovementService {
         // Update product quantity
         productDAO.updateProductQuantity(productId, quantityAdded);
 
-        // Record the movement
-        stockMovementDAO.createStockMovement(movement);
+        // Record the movement (written in the background)
+        StockMovementJournal.getInstance().record(movement);
 
         return movement;
     }
 
+    /**
+     * Receives a supplier delivery: adds every line's quantity and records
+     * one RESTOCK movement per product, all in one transaction. Quantities
+     * go out as one JDBC batch and the movements as one multi-row INSERT,
+     * so the round trips do not grow with the number of lines. Lines for
+     * the same product are combined.
+     *
+     * @return The recorded movements with their IDs, in product ID order
+     * @throws SQLException If a line is invalid or a product does not exist (nothing is received)
+     */
+    public List<StockMovement> recordDelivery(int supplierId, int userId, List<DeliveryLine> lines,
+                                              String reason) throws SQLException {
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (DeliveryLine line : lines) {
+            if (line.getQuantity() <= 0) {
+                throw new SQLException("Delivery quantity must be positive for product ID: " + line.getProductId());
+            }
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        if (quantities.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        TransactionContext ownTransaction = TransactionContext.isActive() ? null : TransactionContext.begin();
+        try {
+            List<StockMovement> movements = new ArrayList<>(quantities.size());
+            for (ProductDAO.StockAddition addition : productDAO.addStock(quantities)) {
+                StockMovement movement = new StockMovement(
+                        addition.getProductId(),
+                        supplierId,
+                        "RESTOCK",
+                        addition.getQuantity(),
+                        addition.getPreviousQuantity(),
+                        reason
+                );
+                movement.setUserId(userId);
+                movements.add(movement);
+            }
+            stockMovementDAO.saveStockMovements(movements);
+            if (ownTransaction != null) {
+                ownTransaction.commit();
+            }
+            return movements;
+        } finally {
+            if (ownTransaction != null) {
+                ownTransaction.close();
+            }
+        }
+    }
+
     public StockMovement recordAdjustmentMovement(int productId, int userId, int adjustment,
                                                   String reason) throws SQLException {
         product.Product product = productDAO.getProductById(productId);
@@ -110,8 +171,8 @@ public class StockMovementService {
         // Update product quantity
         productDAO.updateProductQuantity(productId, adjustment);
 
-        // Record the movement
-        stockMovementDAO.createStockMovement(movement);
+        // Record the movement (written in the background)
+        StockMovementJournal.getInstance().record(movement);
 
         return movement;
     }
@@ -128,70 +189,95 @@ public class StockMovementService {
         return stockMovementDAO.getAllMovements();
     }
 
+    public Page<StockMovement> getMovementHistoryPage(Page.Cursor after, int limit) throws SQLException {
+        return stockMovementDAO.getMovementsPage(after, limit);
+    }
+
+    public Page<StockMovement> getMovementHistoryPage(String movementType, Integer userId,
+                                                      Page.Cursor after, int limit) throws SQLException {
+        return stockMovementDAO.getMovementsPage(movementType, userId, after, limit);
+    }
+
+    /**
+     * Compares every product's quantity with its movement ledger (see
+     * StockReconciler) and optionally records corrective adjustments.
+     */
+    public StockReconciler.ReconciliationReport reconcileStock(boolean applyCorrections, int userId) throws SQLException {
+        return new StockReconciler().reconcile(applyCorrections, userId);
+    }
+
     public int getTotalMovementsCount() throws SQLException {
         return stockMovementDAO.getTotalMovementsCount();
     }
 
     public String generateMovementReport(java.time.LocalDate startDate, java.time.LocalDate endDate) throws SQLException {
-        List<StockMovement> movements = stockMovementDAO.getMovementsByDateRange(
-                startDate.atStartOfDay(),
-                endDate.atTime(23, 59, 59)
-        );
-
         StringBuilder report = new StringBuilder();
-        report.append("STOCK MOVEMENT REPORT\n");
-        report.append("=====================\n");
-        report.append("Period: ").append(startDate).append(" to ").append(endDate).append("\n");
-        report.append("Generated: ").append(java.time.LocalDateTime.now()).append("\n\n");
-
-        if (movements.isEmpty()) {
-            report.append("No stock movements in the specified period.\n");
-            return report.toString();
-        }
-
-        int totalAdded = 0;
-        int totalRemoved = 0;
-
-        report.append(String.format("%-20s %-25s %-15s %-10s %-10s %-10s %-20s\n",
-                "Timestamp", "Product ID", "Type", "Change", "From", "To", "Reason"));
-        report.append("-".repeat(120)).append("\n");
-
-        for (StockMovement movement : movements) {
-            String productName = getProductName(movement.getProductId());
-            report.append(String.format("%-20s %-25s %-15s %-10d %-10d %-10d %-20s\n",
-                    movement.getTimestamp().toString().substring(0, 19),
-                    truncate(productName, 23),
-                    movement.getMovementType(),
-                    movement.getQuantityChanged(),
-                    movement.getPreviousQuantity(),
-                    movement.getNewQuantity(),
-                    truncate(movement.getReason(), 18)
-            ));
-
-            if (movement.getQuantityChanged() > 0) {
-                totalAdded += movement.getQuantityChanged();
-            } else {
-                totalRemoved += Math.abs(movement.getQuantityChanged());
-            }
+        try {
+            writeMovementReport(startDate, endDate, report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder does not throw
         }
-
-        report.append("\nSUMMARY:\n");
-        report.append("--------\n");
-        report.append("Total Movements: ").append(movements.size()).append("\n");
-        report.append("Total Items Added: ").append(totalAdded).append("\n");
-        report.append("Total Items Removed: ").append(totalRemoved).append("\n");
-        report.append("Net Change: ").append(totalAdded - totalRemoved).append("\n");
-
         return report.toString();
     }
 
-    private String getProductName(int productId) {
+    /**
+     * Writes the movement report to out while the rows stream in from a
+     * single joined query (see StockMovementDAO.streamMovementsWithProductNames),
+     * so a long period needs neither one product lookup per row nor the
+     * whole period in memory. Pass a Writer to send it straight to a file.
+     */
+    public void writeMovementReport(java.time.LocalDate startDate, java.time.LocalDate endDate,
+                                    Appendable out) throws SQLException, IOException {
+        out.append("STOCK MOVEMENT REPORT\n");
+        out.append("=====================\n");
+        out.append("Period: ").append(startDate.toString()).append(" to ").append(endDate.toString()).append("\n");
+        out.append("Generated: ").append(java.time.LocalDateTime.now().toString()).append("\n\n");
+
+        int[] totals = new int[3]; // rows, added, removed
         try {
-            product.Product product = productDAO.getProductById(productId);
-            return product != null ? product.getName() : "Product ID: " + productId;
-        } catch (SQLException e) {
-            return "Product ID: " + productId;
+            stockMovementDAO.streamMovementsWithProductNames(
+                    TimeRange.ofDays(startDate, endDate),
+                    (movement, productName) -> {
+                        try {
+                            if (totals[0]++ == 0) {
+                                out.append(String.format("%-20s %-25s %-15s %-10s %-10s %-10s %-20s\n",
+                                        "Timestamp", "Product", "Type", "Change", "From", "To", "Reason"));
+                                out.append("-".repeat(120)).append("\n");
+                            }
+                            String name = productName != null ? productName : "Product ID: " + movement.getProductId();
+                            out.append(String.format("%-20s %-25s %-15s %-10d %-10d %-10d %-20s\n",
+                                    movement.getTimestamp().format(TIMESTAMP_FORMAT),
+                                    truncate(name, 23),
+                                    movement.getMovementType(),
+                                    movement.getQuantityChanged(),
+                                    movement.getPreviousQuantity(),
+                                    movement.getNewQuantity(),
+                                    truncate(movement.getReason(), 18)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        if (movement.getQuantityChanged() > 0) {
+                            totals[1] += movement.getQuantityChanged();
+                        } else {
+                            totals[2] += Math.abs(movement.getQuantityChanged());
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+        int movementCount = totals[0];
+
+        if (movementCount == 0) {
+            out.append("No stock movements in the specified period.\n");
+            return;
+        }
+
+        out.append("\nSUMMARY:\n");
+        out.append("--------\n");
+        out.append("Total Movements: ").append(String.valueOf(movementCount)).append("\n");
+        out.append("Total Items Added: ").append(String.valueOf(totals[1])).append("\n");
+        out.append("Total Items Removed: ").append(String.valueOf(totals[2])).append("\n");
+        out.append("Net Change: ").append(String.valueOf(totals[1] - totals[2])).append("\n");
     }
 
     private String truncate(String str, int length) {
@@ -199,4 +285,20 @@ public class StockMovementService {
         if (str.length() <= length) return str;
         return str.substring(0, length - 3) + "...";
     }
-}
\ No newline at end of file
+
+    /**
+     * One line of a supplier delivery.
+     */
+    public static class DeliveryLine {
+        private final int productId;
+        private final int quantity;
+
+        public DeliveryLine(int productId, int quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+
+        public int getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+    }
+}
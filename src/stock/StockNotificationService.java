@@ -7,6 +7,7 @@ import product.Product;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import product.*;
@@ -30,14 +31,28 @@ public class StockNotificationService {
         this(null);
     }
     
+    // Reconciliation pass over the whole catalog. Alerts are normally raised
+    // from StockThresholdMonitor events (see AlertManager.startMonitoring)
     public void checkAllStockLevels() throws SQLException {
-        List<Product> products = productDAO.getAllProducts();
+        List<Product> products = ProductCatalogCache.getInstance().getAllActiveProducts();
+        List<LowStockAlert> pending = new ArrayList<>();
         
         for (Product product : products) {
-            if (product.isActive() && product.getCurrentQuantity() <= product.getMinStockLevel()) {
-                triggerLowStockAlert(product);
+            if (product.isActive() && product.getCurrentQuantity() <= product.getMinStockLevel()
+                    && !alertDAO.hasUnresolvedAlert(product.getProductId())) {
+                pending.add(new LowStockAlert(
+                    0, // Will be set by DAO
+                    product.getProductId(),
+                    product.getCurrentQuantity(),
+                    product.getMinStockLevel(),
+                    LocalDateTime.now(),
+                    false
+                ));
             }
         }
+        
+        // Flush all new alerts in one batched insert
+        alertDAO.createAlerts(pending);
     }
     
     public boolean triggerLowStockAlert(Product product) throws SQLException {
@@ -83,7 +98,13 @@ public class StockNotificationService {
         return product.getCurrentQuantity() <= product.getMinStockLevel();
     }
     
+    // Forecast-based when the product has sales history (see DemandForecaster)
     public int calculateReorderQuantity(Product product) {
+        int forecastQuantity = DemandForecaster.getInstance().getReorderQuantity(product);
+        if (forecastQuantity >= 0) {
+            return forecastQuantity;
+        }
+        
         int minStock = product.getMinStockLevel();
         int currentStock = product.getCurrentQuantity();
         int shortage = minStock - currentStock;
@@ -0,0 +1,345 @@
+package stock;
+
+import database.DBManager;
+import database.TransactionContext;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Stock reconciliation - SRS 1.5 Track Stock Movement
+ *
+ * Checks products.quantity against the stock_movements ledger. For each
+ * product the ledger's expected quantity is the previous_quantity of its
+ * first movement plus the sum of all quantity_changed values; any
+ * difference from products.quantity is reported as drift, together with
+ * the number of places where a movement's previous_quantity does not
+ * follow on from the movement before it.
+ *
+ * - The product ID range is split into partitions that run in parallel on
+ *   a ForkJoinPool, each on its own pooled connection
+ * - Each partition streams its movements (fetch size Integer.MIN_VALUE,
+ *   ordered by idx_stock_movements_product_date) and folds them one product
+ *   at a time, so memory does not grow with the size of the ledger
+ * - Each partition reads products and movements in one consistent
+ *   snapshot (START TRANSACTION WITH CONSISTENT SNAPSHOT)
+ * - Optionally writes one ADJUSTMENT movement per drifting product, so the
+ *   ledger agrees with the counted stock again. Each drift is re-checked
+ *   with the product row locked before it is corrected (see correct())
+ *
+ * Movements are written to the ledger by StockMovementJournal after their
+ * transaction commits, so reconcile() flushes the journal before reading;
+ * otherwise recent sales would show up as drift and be "corrected" twice.
+ *
+ * products.quantity is treated as the truth. Sales made while the job runs
+ * can still be reported as drift (another terminal's journal may not have
+ * written their movements yet), but they are not corrected.
+ */
+public class StockReconciler {
+    public static final int DEFAULT_PARTITION_SIZE = 2000;
+
+    private final int partitionSize;
+    private final int parallelism;
+    private final StockMovementDAO stockMovementDAO = new StockMovementDAO(null);
+
+    public StockReconciler() {
+        // Leave pooled connections for the application itself
+        this(DEFAULT_PARTITION_SIZE, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    public StockReconciler(int partitionSize, int parallelism) {
+        this.partitionSize = Math.max(1, partitionSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param applyCorrections Write an ADJUSTMENT movement for every drift that re-checks the same
+     * @param userId           User recorded on the corrective movements
+     */
+    public ReconciliationReport reconcile(boolean applyCorrections, int userId) throws SQLException {
+        long started = System.currentTimeMillis();
+        if (DBManager.isConnected()) {
+            StockMovementJournal.getInstance().flush(); // Barrier: queued movements are stored
+        }
+        int[] range = productIdRange();
+        ReconciliationReport report;
+        if (range == null) {
+            report = new ReconciliationReport();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                report = pool.invoke(new PartitionTask(range[0], range[1]));
+            } catch (PartitionFailure e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        if (applyCorrections) {
+            Timestamp runStarted = new Timestamp(started);
+            for (Drift drift : report.drifts) {
+                if (drift.getDifference() != 0 && correct(drift, userId, runStarted)) {
+                    report.correctionsWritten++;
+                }
+            }
+        }
+        report.elapsedMillis = System.currentTimeMillis() - started;
+        return report;
+    }
+
+    private int[] productIdRange() throws SQLException {
+        String sql = "SELECT MIN(product_id), MAX(product_id) FROM products";
+        try (Connection c = DBManager.getConnection();
+             Statement stmt = c.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next() && rs.getObject(1) != null) {
+                return new int[]{rs.getInt(1), rs.getInt(2)};
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes the ADJUSTMENT for one drift if it still holds. The product row
+     * is locked (SELECT ... FOR UPDATE) and its ledger recomputed in the
+     * same transaction; the correction is skipped if the difference has
+     * changed or the product has movements newer than the start of the
+     * run, since those may belong to a sale whose movement is still on its
+     * way (another terminal's journal).
+     *
+     * @return True if the correction was written
+     */
+    private boolean correct(Drift drift, int userId, Timestamp runStarted) throws SQLException {
+        int productId = drift.getProductId();
+        try (TransactionContext transaction = TransactionContext.begin()) {
+            if (transaction == null) {
+                return false; // Test mode
+            }
+            Connection c = DBManager.getConnection();
+            int actual;
+            try (PreparedStatement pstmt = c.prepareStatement(
+                    "SELECT quantity FROM products WHERE product_id = ? FOR UPDATE")) {
+                pstmt.setInt(1, productId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    actual = rs.getInt(1);
+                }
+            }
+
+            String sql = "SELECT (SELECT previous_quantity FROM stock_movements WHERE product_id = ? " +
+                    "        ORDER BY timestamp, movement_id LIMIT 1) + SUM(quantity_changed), MAX(timestamp) " +
+                    "FROM stock_movements WHERE product_id = ?";
+            int expected;
+            try (PreparedStatement pstmt = c.prepareStatement(sql)) {
+                pstmt.setInt(1, productId);
+                pstmt.setInt(2, productId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next() || rs.getTimestamp(2) == null) {
+                        return false;
+                    }
+                    if (rs.getTimestamp(2).after(runStarted)) {
+                        return false; // Changed while the run was going on
+                    }
+                    expected = rs.getInt(1);
+                }
+            }
+            if (actual - expected != drift.getDifference()) {
+                return false;
+            }
+
+            StockMovement movement = new StockMovement(productId, null, "ADJUSTMENT",
+                    drift.getDifference(), expected, "Reconciliation: ledger drift");
+            movement.setUserId(userId);
+            stockMovementDAO.saveStockMovements(Collections.singletonList(movement));
+            transaction.commit();
+            return true;
+        }
+    }
+
+    // Reconciles product IDs [from, to] of one partition
+    private ReconciliationReport reconcileRange(int from, int to) throws SQLException {
+        ReconciliationReport report = new ReconciliationReport();
+        // Both reads below come from one consistent snapshot, so a sale that commits
+        // in between cannot show up in one and not the other
+        try (TransactionContext transaction = TransactionContext.begin()) {
+            Connection c = DBManager.getConnection();
+            if (transaction != null) {
+                try (Statement stmt = c.createStatement()) {
+                    stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                }
+            }
+            Map<Integer, Integer> actual = new HashMap<>();
+            try (PreparedStatement pstmt = c.prepareStatement(
+                    "SELECT product_id, quantity FROM products WHERE product_id BETWEEN ? AND ?")) {
+                pstmt.setInt(1, from);
+                pstmt.setInt(2, to);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        actual.put(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+            }
+
+            String sql = "SELECT product_id, quantity_changed, previous_quantity FROM stock_movements " +
+                    "WHERE product_id BETWEEN ? AND ? ORDER BY product_id, timestamp, movement_id";
+            try (PreparedStatement pstmt = c.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(Integer.MIN_VALUE);
+                pstmt.setInt(1, from);
+                pstmt.setInt(2, to);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    int productId = -1;
+                    int expected = 0;
+                    int chainBreaks = 0;
+                    while (rs.next()) {
+                        int rowProduct = rs.getInt(1);
+                        int change = rs.getInt(2);
+                        int previous = rs.getInt(3);
+                        if (rowProduct != productId) {
+                            if (productId != -1) {
+                                report.check(productId, expected, actual.get(productId), chainBreaks);
+                            }
+                            productId = rowProduct;
+                            expected = previous; // Opening balance
+                            chainBreaks = 0;
+                        } else if (previous != expected) {
+                            chainBreaks++;
+                        }
+                        expected += change;
+                        report.movementsScanned++;
+                    }
+                    if (productId != -1) {
+                        report.check(productId, expected, actual.get(productId), chainBreaks);
+                    }
+                }
+            }
+            if (transaction != null) {
+                transaction.commit();
+            }
+        }
+        return report;
+    }
+
+    private class PartitionTask extends RecursiveTask<ReconciliationReport> {
+        private final int from;
+        private final int to;
+
+        PartitionTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ReconciliationReport compute() {
+            if ((long) to - from < partitionSize) {
+                try {
+                    return reconcileRange(from, to);
+                } catch (SQLException e) {
+                    throw new PartitionFailure(e);
+                }
+            }
+            int mid = (int) (((long) from + to) >>> 1);
+            PartitionTask left = new PartitionTask(from, mid);
+            PartitionTask right = new PartitionTask(mid + 1, to);
+            left.fork();
+            ReconciliationReport result = right.compute();
+            return result.merge(left.join());
+        }
+    }
+
+    // Carries a partition's SQLException out of the pool
+    private static class PartitionFailure extends RuntimeException {
+        PartitionFailure(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    /**
+     * Outcome of one reconciliation run.
+     */
+    public static class ReconciliationReport {
+        private final List<Drift> drifts = new ArrayList<>();
+        private int productsChecked;
+        private long movementsScanned;
+        private int correctionsWritten;
+        private long elapsedMillis;
+
+        private void check(int productId, int expected, Integer actual, int chainBreaks) {
+            productsChecked++;
+            if (actual == null) {
+                return; // Movements for a product that no longer exists
+            }
+            if (actual != expected || chainBreaks > 0) {
+                drifts.add(new Drift(productId, expected, actual, chainBreaks));
+            }
+        }
+
+        private ReconciliationReport merge(ReconciliationReport other) {
+            drifts.addAll(other.drifts);
+            productsChecked += other.productsChecked;
+            movementsScanned += other.movementsScanned;
+            return this;
+        }
+
+        public List<Drift> getDrifts() { return drifts; }
+        public int getProductsChecked() { return productsChecked; }
+        public long getMovementsScanned() { return movementsScanned; }
+        public int getCorrectionsWritten() { return correctionsWritten; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return "Reconciliation: " + productsChecked + " products, " + movementsScanned + " movements, " +
+                    drifts.size() + " drifting, " + correctionsWritten + " corrected in " + elapsedMillis + " ms";
+        }
+    }
+
+    /**
+     * A product whose quantity does not match its movement ledger.
+     */
+    public static class Drift {
+        private final int productId;
+        private final int expectedQuantity;
+        private final int actualQuantity;
+        private final int chainBreaks;
+
+        public Drift(int productId, int expectedQuantity, int actualQuantity, int chainBreaks) {
+            this.productId = productId;
+            this.expectedQuantity = expectedQuantity;
+            this.actualQuantity = actualQuantity;
+            this.chainBreaks = chainBreaks;
+        }
+
+        public int getProductId() { return productId; }
+        public int getExpectedQuantity() { return expectedQuantity; }
+        public int getActualQuantity() { return actualQuantity; }
+        // actual - expected; the change a corrective ADJUSTMENT records
+        public int getDifference() { return actualQuantity - expectedQuantity; }
+        public int getChainBreaks() { return chainBreaks; }
+
+        @Override
+        public String toString() {
+            return "Drift[product=" + productId + ", ledger=" + expectedQuantity + ", actual=" +
+                    actualQuantity + ", breaks=" + chainBreaks + "]";
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package stock;
+
+import product.Product;
+import product.ProductCatalogCache;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock reservations for open carts - SRS 2.1 Process Sale
+ *
+ * While a cashier builds a sale, the units in the cart are held so another
+ * till in this application cannot sell them too. Available stock is the
+ * cached on-hand quantity minus everything reserved:
+ *
+ * - Each product has one AtomicInteger of reserved units; reserve() claims
+ *   units with a compare-and-set loop, so tills never block each other
+ * - A cart's reservations expire after nardo.reservation.ttlMs (default
+ *   15 minutes) without activity. Expiry uses a hashed timing wheel: one
+ *   bucket per tick, each entry remembering how many turns it still has to
+ *   wait, so scheduling and cancelling are O(1) however many carts are open
+ * - At checkout the sale's conditional batch UPDATE (ProductDAO.deductStock)
+ *   is the single atomic decrement; once it commits, consume() drops the
+ *   reservations because the on-hand quantity now reflects them
+ *
+ * Reservations live in this process only. Other terminals are still kept
+ * honest by the conditional UPDATE at checkout.
+ */
+public class StockReservationManager {
+    private static final long TTL_MS = Long.getLong("nardo.reservation.ttlMs", 15 * 60 * 1000L);
+    private static final long TICK_MS = 1000L;
+    private static final int WHEEL_SIZE = 512;
+
+    private static StockReservationManager instance;
+
+    private final Map<Integer, AtomicInteger> reservedByProduct = new ConcurrentHashMap<>();
+    private final Map<Long, Cart> carts = new ConcurrentHashMap<>();
+
+    // Timing wheel: bucket = deadline tick % WHEEL_SIZE
+    private final Queue<WheelEntry>[] wheel;
+    private final AtomicLong currentTick = new AtomicLong();
+    private final ScheduledExecutorService ticker;
+
+    private final LongAdder expiredCarts = new LongAdder();
+    private final LongAdder consumedCarts = new LongAdder();
+    private final LongAdder rejectedReservations = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private StockReservationManager() {
+        wheel = new Queue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-reservation-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized StockReservationManager getInstance() {
+        if (instance == null) {
+            instance = new StockReservationManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Reserves more units of a product for a cart and restarts the cart's TTL.
+     *
+     * @throws ReservationException If fewer units are available than requested
+     */
+    public void reserve(long cartId, int productId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        int onHand = onHand(productId);
+        AtomicInteger reserved = reservedByProduct.computeIfAbsent(productId, id -> new AtomicInteger());
+        while (true) {
+            int current = reserved.get();
+            if (onHand >= 0 && onHand - current < quantity) {
+                rejectedReservations.increment();
+                throw new ReservationException(productId, Math.max(0, onHand - current), quantity);
+            }
+            if (reserved.compareAndSet(current, current + quantity)) {
+                break;
+            }
+        }
+
+        while (true) {
+            Cart cart = carts.computeIfAbsent(cartId, Cart::new);
+            synchronized (cart) {
+                if (cart.closed) {
+                    continue; // Expired or consumed meanwhile; start a new cart
+                }
+                cart.held.merge(productId, quantity, Integer::sum);
+                schedule(cart);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Releases up to quantity units of a product held by a cart.
+     */
+    public void release(long cartId, int productId, int quantity) {
+        Cart cart = carts.get(cartId);
+        if (cart == null || quantity <= 0) {
+            return;
+        }
+        synchronized (cart) {
+            if (cart.closed) {
+                return;
+            }
+            Integer held = cart.held.get(productId);
+            if (held == null) {
+                return;
+            }
+            int released = Math.min(held, quantity);
+            if (held - released > 0) {
+                cart.held.put(productId, held - released);
+            } else {
+                cart.held.remove(productId);
+            }
+            unreserve(productId, released);
+            schedule(cart);
+        }
+    }
+
+    /**
+     * Changes the units a cart holds for a product to newQuantity.
+     *
+     * @throws ReservationException If an increase is not available
+     */
+    public void adjust(long cartId, int productId, int newQuantity) {
+        int held = getReserved(cartId, productId);
+        if (newQuantity > held) {
+            reserve(cartId, productId, newQuantity - held);
+        } else if (newQuantity < held) {
+            release(cartId, productId, held - newQuantity);
+        }
+    }
+
+    /**
+     * Releases everything a cart holds (cart cleared or abandoned).
+     */
+    public void releaseAll(long cartId) {
+        closeCart(cartId);
+    }
+
+    /**
+     * Drops a cart's reservations after its sale committed; the deducted
+     * on-hand quantity now accounts for them.
+     */
+    public void consume(long cartId) {
+        if (closeCart(cartId)) {
+            consumedCarts.increment();
+        }
+    }
+
+    /**
+     * @return Units that can still be reserved (on hand minus all reservations)
+     */
+    public int getAvailable(int productId) {
+        int onHand = onHand(productId);
+        if (onHand < 0) {
+            return Integer.MAX_VALUE; // Unknown (test mode)
+        }
+        AtomicInteger reserved = reservedByProduct.get(productId);
+        return Math.max(0, onHand - (reserved != null ? reserved.get() : 0));
+    }
+
+    public int getReserved(long cartId, int productId) {
+        Cart cart = carts.get(cartId);
+        if (cart == null) {
+            return 0;
+        }
+        synchronized (cart) {
+            return cart.closed ? 0 : cart.held.getOrDefault(productId, 0);
+        }
+    }
+
+    public int getOpenCartCount() { return carts.size(); }
+    public long getExpiredCartCount() { return expiredCarts.sum(); }
+    public long getConsumedCartCount() { return consumedCarts.sum(); }
+    public long getRejectedReservationCount() { return rejectedReservations.sum(); }
+
+    // ---- Internals ----
+
+    // Cached on-hand quantity, or -1 if the catalog cannot be read
+    private int onHand(int productId) {
+        try {
+            Product product = ProductCatalogCache.getInstance().getProduct(productId);
+            return product != null ? product.getQuantity() : 0;
+        } catch (SQLException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private void unreserve(int productId, int quantity) {
+        AtomicInteger reserved = reservedByProduct.get(productId);
+        if (reserved != null) {
+            reserved.addAndGet(-quantity);
+        }
+    }
+
+    private boolean closeCart(long cartId) {
+        Cart cart = carts.remove(cartId);
+        if (cart == null) {
+            return false;
+        }
+        Map<Integer, Integer> held;
+        synchronized (cart) {
+            if (cart.closed) {
+                return false;
+            }
+            cart.closed = true;
+            held = new HashMap<>(cart.held);
+            cart.held.clear();
+        }
+        for (Map.Entry<Integer, Integer> entry : held.entrySet()) {
+            unreserve(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    // Called with the cart locked; earlier entries for the cart become stale
+    private void schedule(Cart cart) {
+        long deadline = currentTick.get() + Math.max(1, TTL_MS / TICK_MS);
+        cart.deadlineTick = deadline;
+        wheel[(int) (deadline % WHEEL_SIZE)].add(new WheelEntry(cart, deadline));
+    }
+
+    private void tick() {
+        try {
+            long now = currentTick.incrementAndGet();
+            Iterator<WheelEntry> it = wheel[(int) (now % WHEEL_SIZE)].iterator();
+            while (it.hasNext()) {
+                WheelEntry entry = it.next();
+                if (entry.deadlineTick > now) {
+                    continue; // Due on a later turn of the wheel
+                }
+                it.remove();
+                Cart cart = entry.cart;
+                boolean expired;
+                synchronized (cart) {
+                    expired = !cart.closed && cart.deadlineTick == entry.deadlineTick;
+                }
+                if (expired && closeCart(cart.cartId)) {
+                    expiredCarts.increment();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep the wheel turning
+            System.err.println("Error expiring stock reservations: " + e.getMessage());
+        }
+    }
+
+    private static class Cart {
+        final long cartId;
+        final Map<Integer, Integer> held = new HashMap<>();
+        long deadlineTick;
+        boolean closed = false;
+
+        Cart(long cartId) {
+            this.cartId = cartId;
+        }
+    }
+
+    private static class WheelEntry {
+        final Cart cart;
+        final long deadlineTick;
+
+        WheelEntry(Cart cart, long deadlineTick) {
+            this.cart = cart;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    /**
+     * Thrown when a reservation asks for more units than are available.
+     */
+    public static class ReservationException extends IllegalStateException {
+        private final int productId;
+        private final int available;
+        private final int requested;
+
+        public ReservationException(int productId, int available, int requested) {
+            super("Insufficient stock for product ID " + productId +
+                    ". Available: " + available + ", Requested: " + requested);
+            this.productId = productId;
+            this.available = available;
+            this.requested = requested;
+        }
+
+        public int getProductId() { return productId; }
+        public int getAvailable() { return available; }
+        public int getRequested() { return requested; }
+    }
+}
@@ -0,0 +1,215 @@
+package stock;
+
+import database.DBManager;
+import database.StatementShapes;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistence for stock_snapshots and the snapshot + movement arithmetic
+ * used by StockLedger.
+ *
+ * Every quantity query has the same shape: a base set of (product_id,
+ * quantity) rows - one snapshot, or the live products table - joined with
+ * the sum of quantity_changed over one time window and added or subtracted.
+ * When the query is for some products only, both the base and the
+ * movement sum are filtered by product, so the movement index
+ * (product_id, timestamp) keeps the read to those products.
+ */
+public class StockSnapshotDAO {
+    // Product IDs per IN (...) list
+    private static final int IN_LIST_SIZE = 500;
+    // Base rows: one snapshot, or the products that existed at an instant
+    private static final String SNAPSHOT_BASE = "SELECT product_id, quantity FROM stock_snapshots WHERE taken_at = ?";
+    private static final String CURRENT_BASE = "SELECT product_id, quantity FROM products WHERE created_at <= ?";
+
+    public StockSnapshotDAO() {}
+
+    /**
+     * Writes every product's quantity as of takenAt into the snapshot for
+     * date, replacing an earlier snapshot of the same day. The quantity is
+     * the current one minus the movements after takenAt, computed in one
+     * statement so products and stock_movements are read from the same
+     * committed state.
+     *
+     * @return Number of rows written
+     */
+    public int takeSnapshot(LocalDate date, LocalDateTime takenAt) throws SQLException {
+        String sql = "INSERT INTO stock_snapshots (snapshot_date, product_id, quantity, taken_at) " +
+                "SELECT s.snap_date, s.snap_product, s.snap_quantity, s.snap_taken FROM (" +
+                "    SELECT ? AS snap_date, p.product_id AS snap_product, " +
+                "           p.quantity - COALESCE(d.delta, 0) AS snap_quantity, ? AS snap_taken " +
+                "    FROM products p LEFT JOIN (" +
+                "        SELECT product_id, SUM(quantity_changed) AS delta FROM stock_movements " +
+                "        WHERE timestamp > ? GROUP BY product_id) d ON d.product_id = p.product_id) s " +
+                "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), taken_at = VALUES(taken_at)";
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(date));
+            pstmt.setTimestamp(2, Timestamp.valueOf(takenAt));
+            pstmt.setTimestamp(3, Timestamp.valueOf(takenAt));
+            return pstmt.executeUpdate();
+        }
+    }
+
+    public boolean hasSnapshot(LocalDate date) throws SQLException {
+        String sql = "SELECT 1 FROM stock_snapshots WHERE snapshot_date = ? LIMIT 1";
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(date));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * @param productId Product to look at, or null for any product
+     * @return taken_at of the latest snapshot at or before the instant, or null
+     */
+    public LocalDateTime findSnapshotAtOrBefore(LocalDateTime at, Integer productId) throws SQLException {
+        return findSnapshot("SELECT MAX(taken_at) FROM stock_snapshots WHERE taken_at <= ?", at, productId);
+    }
+
+    /**
+     * @param productId Product to look at, or null for any product
+     * @return taken_at of the earliest snapshot after the instant, or null
+     */
+    public LocalDateTime findSnapshotAfter(LocalDateTime at, Integer productId) throws SQLException {
+        return findSnapshot("SELECT MIN(taken_at) FROM stock_snapshots WHERE taken_at > ?", at, productId);
+    }
+
+    /**
+     * @param productId Product to look at, or null for every product
+     * @return IDs of the products that existed at the instant but have no
+     *         row in the snapshot taken at takenAt (created after it)
+     */
+    public List<Integer> findProductsMissingFrom(LocalDateTime takenAt, Integer productId,
+                                                 LocalDateTime at) throws SQLException {
+        String sql = "SELECT product_id FROM products p WHERE created_at <= ? " +
+                "AND NOT EXISTS (SELECT 1 FROM stock_snapshots s " +
+                "                WHERE s.product_id = p.product_id AND s.taken_at = ?)" +
+                (productId != null ? " AND product_id = ?" : "");
+        List<Integer> missing = new ArrayList<>();
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(at));
+            pstmt.setTimestamp(2, Timestamp.valueOf(takenAt));
+            if (productId != null) {
+                pstmt.setInt(3, productId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    missing.add(rs.getInt(1));
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Snapshot quantities plus the movements in (takenAt, to].
+     *
+     * @param productIds Products to include, or null for every product in the snapshot
+     */
+    public Map<Integer, Integer> rollForward(LocalDateTime takenAt, List<Integer> productIds,
+                                             LocalDateTime to) throws SQLException {
+        return applyMovements(SNAPSHOT_BASE, Timestamp.valueOf(takenAt), 1, takenAt, to, productIds);
+    }
+
+    /**
+     * Snapshot quantities minus the movements in (to, takenAt].
+     *
+     * @param productIds Products to include, or null for every product in the snapshot
+     */
+    public Map<Integer, Integer> rollBack(LocalDateTime takenAt, List<Integer> productIds,
+                                          LocalDateTime to) throws SQLException {
+        return applyMovements(SNAPSHOT_BASE, Timestamp.valueOf(takenAt), -1, to, takenAt, productIds);
+    }
+
+    /**
+     * Current quantities minus the movements in (to, now], for products that
+     * existed at to.
+     *
+     * @param productIds Products to include, or null for every product
+     */
+    public Map<Integer, Integer> rollBackFromCurrent(List<Integer> productIds,
+                                                     LocalDateTime to) throws SQLException {
+        return applyMovements(CURRENT_BASE, Timestamp.valueOf(to), -1, to, LocalDateTime.now(), productIds);
+    }
+
+    private LocalDateTime findSnapshot(String sql, LocalDateTime at, Integer productId) throws SQLException {
+        if (productId != null) {
+            sql += " AND product_id = ?";
+        }
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(at));
+            if (productId != null) {
+                pstmt.setInt(2, productId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Timestamp takenAt = rs.next() ? rs.getTimestamp(1) : null;
+                return takenAt != null ? takenAt.toLocalDateTime() : null;
+            }
+        }
+    }
+
+    // base.quantity + sign * SUM(quantity_changed in (from, to]) per product, in IN_LIST_SIZE chunks
+    private Map<Integer, Integer> applyMovements(String base, Timestamp baseParam, int sign,
+                                                 LocalDateTime from, LocalDateTime to,
+                                                 List<Integer> productIds) throws SQLException {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        if (productIds == null) {
+            applyMovements(base, baseParam, sign, from, to, null, 0, 0, quantities);
+            return quantities;
+        }
+        for (int start = 0; start < productIds.size(); start += IN_LIST_SIZE) {
+            int end = Math.min(productIds.size(), start + IN_LIST_SIZE);
+            applyMovements(base, baseParam, sign, from, to, productIds, start, end, quantities);
+        }
+        return quantities;
+    }
+
+    private void applyMovements(String base, Timestamp baseParam, int sign, LocalDateTime from,
+                                LocalDateTime to, List<Integer> productIds, int start, int end,
+                                Map<Integer, Integer> quantities) throws SQLException {
+        int size = productIds != null ? StatementShapes.paddedSize(end - start, IN_LIST_SIZE) : 0;
+        String filter = productIds != null ? " AND product_id IN (" + StatementShapes.repeat("?", size) + ")" : "";
+        String sql = "SELECT b.product_id, b.quantity + ? * COALESCE(d.delta, 0) AS quantity " +
+                "FROM (" + base + filter + ") b LEFT JOIN (" +
+                "SELECT product_id, SUM(quantity_changed) AS delta FROM stock_movements " +
+                "WHERE timestamp > ? AND timestamp <= ?" + filter +
+                " GROUP BY product_id) d ON d.product_id = b.product_id";
+        try (Connection c = DBManager.getConnection();
+             PreparedStatement pstmt = c.prepareStatement(sql)) {
+            int index = 1;
+            pstmt.setInt(index++, sign);
+            pstmt.setTimestamp(index++, baseParam);
+            index = bindIds(pstmt, index, productIds, start, end, size);
+            pstmt.setTimestamp(index++, Timestamp.valueOf(from));
+            pstmt.setTimestamp(index++, Timestamp.valueOf(to));
+            bindIds(pstmt, index, productIds, start, end, size);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    quantities.put(rs.getInt("product_id"), rs.getInt("quantity"));
+                }
+            }
+        }
+    }
+
+    // Binds productIds[start, end) padded to size by repeating the last ID
+    private static int bindIds(PreparedStatement pstmt, int index, List<Integer> productIds,
+                               int start, int end, int size) throws SQLException {
+        for (int i = 0; i < size; i++) {
+            pstmt.setInt(index++, productIds.get(Math.min(start + i, end - 1)));
+        }
+        return index;
+    }
+}